@@ -0,0 +1,141 @@
+package com.skyplusplus.minesolver.core.ai;
+
+import com.skyplusplus.minesolver.core.gamelogic.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plays certain moves straight onto a game, instead of handing them back one move at a time. Keeps asking the AI for
+ * moves and applying the ones it reports as certain, until the AI needs to guess or the game is over.
+ */
+public class ChainSolver {
+
+    private final MineSweeperAI ai;
+
+    public ChainSolver(MineSweeperAI ai) {
+        this.ai = ai;
+    }
+
+    public Result solve(MineSweeper game) {
+        return solve(game, null);
+    }
+
+    /**
+     * Applies certain moves to the game until there are no more.
+     *
+     * @param game    game to play on. Must not be touched by anyone else until this returns.
+     * @param handler progress handler for the AI
+     * @return every action taken, and the AI's move for the board it stopped at, which is usually a guess.
+     */
+    public Result solve(MineSweeper game, UpdateHandler<BoardUpdate> handler) {
+        return solve(game, handler, null);
+    }
+
+    /**
+     * Same as {@link #solve(MineSweeper, UpdateHandler)}, telling onApplied about every certain move that changed the
+     * game, in the order they were applied. Replaying them on a copy of the game taken before brings it to the same
+     * state, so a copy can be chained on another thread while the real game follows along.
+     */
+    public Result solve(MineSweeper game, UpdateHandler<BoardUpdate> handler, Consumer<Move> onApplied) {
+        List<Action> actions = new ArrayList<>();
+        int rounds = 0;
+
+        while (game.getGameState() == GameState.IN_PROGRESS && !Thread.currentThread().isInterrupted()) {
+            rounds++;
+            List<Move> certainMoves = new ArrayList<>();
+            Move move = ai.calculate(game.clonePlayerState(), handler, certainMoves::add);
+
+            boolean didSomething = false;
+            for (Move certainMove : certainMoves) {
+                if (apply(game, certainMove, actions)) {
+                    didSomething = true;
+                    if (onApplied != null) {
+                        onApplied.accept(certainMove);
+                    }
+                }
+            }
+
+            if (!didSomething) {
+                return new Result(actions, move, rounds);
+            }
+        }
+        return new Result(actions, new Move(null, null), rounds);
+    }
+
+    private static boolean apply(MineSweeper game, Move move, List<Action> actions) {
+        boolean didSomething = false;
+        for (BoardCoord coord : move.getToFlag()) {
+            if (game.flag(coord) != FlagResult.NOP) {
+                actions.add(new Action(Action.Type.FLAG, coord));
+                didSomething = true;
+            }
+        }
+        for (BoardCoord coord : move.getToProbe()) {
+            ProbeResult result = game.probe(coord);
+            if (result != ProbeResult.NOP) {
+                actions.add(new Action(result == ProbeResult.LOSE ? Action.Type.EXPLODE : Action.Type.PROBE, coord));
+                didSomething = true;
+            }
+        }
+        return didSomething;
+    }
+
+    public static class Action {
+        public enum Type {
+            PROBE,
+            FLAG,
+            EXPLODE
+        }
+
+        private final Type type;
+        private final BoardCoord boardCoord;
+
+        Action(Type type, BoardCoord boardCoord) {
+            this.type = type;
+            this.boardCoord = boardCoord;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public BoardCoord getBoardCoord() {
+            return boardCoord;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + boardCoord;
+        }
+    }
+
+    public static class Result {
+        private final List<Action> actions;
+        private final Move finalMove;
+        private final int rounds;
+
+        Result(List<Action> actions, Move finalMove, int rounds) {
+            this.actions = Collections.unmodifiableList(actions);
+            this.finalMove = finalMove;
+            this.rounds = rounds;
+        }
+
+        public List<Action> getActions() {
+            return actions;
+        }
+
+        /**
+         * The move the AI made for the board it stopped at. Empty if the game is over.
+         */
+        public Move getFinalMove() {
+            return finalMove;
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+    }
+}
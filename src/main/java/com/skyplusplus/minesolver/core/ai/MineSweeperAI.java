@@ -4,11 +4,39 @@ import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
 
 
 public abstract class MineSweeperAI extends IncrementalWorker<BoardUpdate> {
+    protected UpdateHandler<Move> certainMoveHandler;
+
     public abstract Move calculate(PlayerView view);
 
     public final Move calculate(PlayerView view, UpdateHandler<BoardUpdate> handler) {
+        return calculate(view, handler, null);
+    }
+
+    /**
+     * Same as calculate, but certain moves may also be passed to certainMoveHandler as soon as they are found, before
+     * the whole calculation is finished. Everything passed to certainMoveHandler is also part of the returned move.
+     * Both handlers are only used for this call: a later calculate(view) reports to neither.
+     */
+    public final Move calculate(
+            PlayerView view,
+            UpdateHandler<BoardUpdate> handler,
+            UpdateHandler<Move> certainMoveHandler
+    ) {
+        UpdateHandler<BoardUpdate> previousHandler = this.handler;
+        UpdateHandler<Move> previousCertainMoveHandler = this.certainMoveHandler;
         this.handler = handler;
-        return calculate(view);
+        this.certainMoveHandler = certainMoveHandler;
+        try {
+            return calculate(view);
+        } finally {
+            this.handler = previousHandler;
+            this.certainMoveHandler = previousCertainMoveHandler;
+        }
     }
 
+    protected final void reportCertainMove(Move move) {
+        if (certainMoveHandler != null && !move.isEmpty()) {
+            certainMoveHandler.handleUpdate(move);
+        }
+    }
 }
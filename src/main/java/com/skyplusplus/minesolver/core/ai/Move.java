@@ -2,12 +2,22 @@ package com.skyplusplus.minesolver.core.ai;
 
 import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Squares to probe and flag. A move can be made from either coordinates or square indexes, and is converted to the
+ * other form only if asked for it.
+ */
 public class Move {
-    private final List<BoardCoord> toProbe;
-    private final List<BoardCoord> toFlag;
+    private volatile List<BoardCoord> toProbe;
+    private volatile List<BoardCoord> toFlag;
+
+    // Set for moves made from square indexes.
+    private final int width;
+    private final int[] toProbeIndexes;
+    private final int[] toFlagIndexes;
 
     public Move(List<BoardCoord> toProbe, List<BoardCoord> toFlag) {
         if (toProbe == null) {
@@ -20,13 +30,72 @@ public class Move {
         } else {
             this.toFlag = toFlag;
         }
+        this.width = 0;
+        this.toProbeIndexes = null;
+        this.toFlagIndexes = null;
+    }
+
+    private Move(int width, int[] toProbe, int[] toFlag) {
+        this.width = width;
+        this.toProbeIndexes = toProbe == null ? new int[0] : toProbe;
+        this.toFlagIndexes = toFlag == null ? new int[0] : toFlag;
+    }
+
+    /**
+     * A move of square indexes, y * width + x.
+     */
+    public static Move ofIndexes(int width, int[] toProbe, int[] toFlag) {
+        return new Move(width, toProbe, toFlag);
     }
 
     public List<BoardCoord> getToProbe() {
+        if (toProbe == null) {
+            toProbe = toCoords(toProbeIndexes);
+        }
         return toProbe;
     }
 
     public List<BoardCoord> getToFlag() {
+        if (toFlag == null) {
+            toFlag = toCoords(toFlagIndexes);
+        }
         return toFlag;
     }
+
+    /**
+     * Squares to probe, as indexes on a board of the given width.
+     */
+    public int[] getToProbeIndexes(int width) {
+        return toProbeIndexes != null && width == this.width ? toProbeIndexes.clone() : toIndexes(getToProbe(), width);
+    }
+
+    /**
+     * Squares to flag, as indexes on a board of the given width.
+     */
+    public int[] getToFlagIndexes(int width) {
+        return toFlagIndexes != null && width == this.width ? toFlagIndexes.clone() : toIndexes(getToFlag(), width);
+    }
+
+    public boolean isEmpty() {
+        if (toProbeIndexes != null) {
+            return toProbeIndexes.length == 0 && toFlagIndexes.length == 0;
+        }
+        return toProbe.isEmpty() && toFlag.isEmpty();
+    }
+
+    private List<BoardCoord> toCoords(int[] indexes) {
+        List<BoardCoord> retVal = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            retVal.add(BoardCoord.ofValue(index % width, index / width));
+        }
+        return Collections.unmodifiableList(retVal);
+    }
+
+    private static int[] toIndexes(List<BoardCoord> coords, int width) {
+        int[] retVal = new int[coords.size()];
+        for (int i = 0; i < retVal.length; i++) {
+            retVal[i] = coords.get(i).getY() * width + coords.get(i).getX();
+        }
+        return retVal;
+    }
 }
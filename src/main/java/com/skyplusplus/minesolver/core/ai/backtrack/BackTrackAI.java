@@ -7,12 +7,13 @@ import com.skyplusplus.minesolver.core.gamelogic.SquareState;
 
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * A standard backtracking AI. Will not be extended, instead will be used for benchmarking
  * against the full AI.
  */
-public class BackTrackAI extends MineSweeperAI {
+public class BackTrackAI extends MineSweeperAI implements MineCombinationFinder {
 
     private int bestIndex = -1;
     private boolean[] bestIsMine;
@@ -100,126 +101,123 @@ public class BackTrackAI extends MineSweeperAI {
         return retVal;
     }
 
-    int findCombinationsOfMines(
+    /**
+     * Finds every assignment of mines to the variables that satisfies all the numbers next to them, where the numbers
+     * must be satisfied by the variables alone.
+     *
+     * The numbers and their adjacency to the variables are flattened into int arrays up front, so the search itself
+     * doesn't allocate anything. Each number keeps track of how many more mines it needs and how many of its
+     * variables are still unassigned, so a number that can no longer be satisfied cuts off its branch straight away,
+     * and every complete assignment reached is a solution.
+     *
+     * @param onSolutionFound called with the assignment for every solution. The array is reused between calls.
+     * @return the number of solutions.
+     */
+    @Override
+    public int findCombinationsOfMines(
             PlayerView view,
             List<BoardCoord> variables,
             Consumer<boolean[]> onSolutionFound
     ) throws InterruptedException {
-
-        boolean isMine[] = new boolean[variables.size()];
-        int[][] numNeighbourUnknowns = new int[view.getWidth()][view.getHeight()];
-        int[][] numNeighbourMines = new int[view.getWidth()][view.getHeight()];
-        boolean isProbed[][] = new boolean[view.getWidth()][view.getHeight()];
-
-        for (BoardCoord l : view.getAllSquares()) {
-            if (view.getSquareState(l) == SquareState.PROBED) {
-                numNeighbourMines[l.getX()][l.getY()] =
-                        view.getSquareMineCount(l)
-                                - view.getNeighbours(l, SquareState.FLAGGED).size();
-                isProbed[l.getX()][l.getY()] = true;
-            }
-            numNeighbourUnknowns[l.getX()][l.getY()] = view.getNeighbours(l, SquareState.UNKNOWN).size();
-        }
-
-        return backtrackForSolutions(numNeighbourMines, numNeighbourUnknowns, isProbed, variables, isMine, 0,
-                () -> onSolutionFound.accept(isMine));
+        Search search = new Search(view, variables, onSolutionFound);
+        bestIsMine = new boolean[variables.size()];
+        bestIndex = -1;
+        return backtrackForSolutions(search, 0);
     }
 
-    private int backtrackForSolutions(
-            int[][] numNeighbourMines,
-            int[][] numNeighbourUnknowns,
-            boolean[][] isProbed,
-            List<BoardCoord> variables,
-            boolean[] isMine,
-            int index,
-            Runnable onSolutionFound
-    ) throws InterruptedException {
-        reportProgress(variables, isMine, index);
-        if (index == variables.size()) {
-            // The DP has reached the end. If the board is in a finished state, assume the current configuration as
-            // one possible solution
-            for (BoardCoord candidate : variables) {
-                for (BoardCoord n : candidate.getNeighbours(isProbed.length, isProbed[0].length)) {
-                    if (isProbed[n.getX()][n.getY()] && numNeighbourMines[n.getX()][n.getY()] > 0) {
-                        return 0;
-                    }
-                }
-            }
-
-            onSolutionFound.run();
-
+    private int backtrackForSolutions(Search search, int index) throws InterruptedException {
+        reportProgress(search, index);
+        if (index == search.isMine.length) {
+            search.onSolutionFound.accept(search.isMine);
             return 1;
-        } else {
-            int nSolutions = 0;
-            BoardCoord thisSquare = variables.get(index);
-            int width = numNeighbourMines.length;
-            int height = numNeighbourMines[0].length;
-
-            for (boolean thisIsMine : Arrays.asList(false, true)) {
-                boolean valid = true;
-                for (BoardCoord l : thisSquare.getNeighbours(width, height)) {
-                    int x = l.getX();
-                    int y = l.getY();
-                    if (thisIsMine && isProbed[x][y]) {
-                        numNeighbourMines[x][y]--;
-                    } else if (!thisIsMine) {
-                        numNeighbourUnknowns[x][y]--;
-                    }
-                    if ((numNeighbourMines[x][y] < 0 && isProbed[x][y])
-                            || numNeighbourUnknowns[x][y] < numNeighbourMines[x][y]) {
-                        valid = false;
-                    }
-                }
+        }
 
-                isMine[index] = thisIsMine;
-                if (valid) {
-                    nSolutions += backtrackForSolutions(
-                            numNeighbourMines,
-                            numNeighbourUnknowns,
-                            isProbed, variables,
-                            isMine,
-                            index + 1,
-                            onSolutionFound
-                    );
+        int nSolutions = 0;
+        int from = search.constraintsOfVariableStart[index];
+        int to = search.constraintsOfVariableStart[index + 1];
+        int[] constraintsOfVariable = search.constraintsOfVariable;
+        int[] minesNeeded = search.minesNeeded;
+        int[] variablesLeft = search.variablesLeft;
+
+        for (int thisIsMine = 0; thisIsMine <= 1; thisIsMine++) {
+            boolean valid = true;
+            for (int i = from; i < to; i++) {
+                int c = constraintsOfVariable[i];
+                minesNeeded[c] -= thisIsMine;
+                variablesLeft[c]--;
+                if (minesNeeded[c] < 0 || variablesLeft[c] < minesNeeded[c]) {
+                    valid = false;
                 }
+            }
 
-                for (BoardCoord l : thisSquare.getNeighbours(width, height)) {
-                    if (thisIsMine && isProbed[l.getX()][l.getY()]) {
-                        numNeighbourMines[l.getX()][l.getY()]++;
-                    } else if (!thisIsMine) {
-                        numNeighbourUnknowns[l.getX()][l.getY()]++;
-                    }
-                }
+            search.isMine[index] = thisIsMine == 1;
+            if (valid) {
+                nSolutions += backtrackForSolutions(search, index + 1);
             }
 
-            return nSolutions;
+            for (int i = from; i < to; i++) {
+                int c = constraintsOfVariable[i];
+                minesNeeded[c] += thisIsMine;
+                variablesLeft[c]++;
+            }
         }
+
+        return nSolutions;
     }
 
-    private void reportProgress(List<BoardCoord> candidates, boolean[] isMine, int index) throws InterruptedException {
+    private void reportProgress(Search search, int index) throws InterruptedException {
         iterations++;
         if (index > bestIndex) {
-            bestIsMine = Arrays.copyOf(isMine, isMine.length);
+            System.arraycopy(search.isMine, 0, bestIsMine, 0, bestIsMine.length);
             bestIndex = index;
         }
 
-        reportProgress(() -> {
-            ArrayList<BoardUpdateEntry> updates = new ArrayList<>();
-            for (int i = 0; i < candidates.size(); i++) {
-                if (i < bestIndex) {
-                    if (bestIsMine[i]) {
-                        updates.add(new BoardUpdateEntry(candidates.get(i), UpdateColor.RED, Integer.toString(i)));
-                    } else {
-                        updates.add(new BoardUpdateEntry(candidates.get(i), UpdateColor.GREEN, Integer.toString(i)));
-                    }
+        reportProgress(search.progress);
+    }
+
+    private BoardUpdate getProgressUpdate(List<BoardCoord> candidates) {
+        ArrayList<BoardUpdateEntry> updates = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i < bestIndex) {
+                if (bestIsMine[i]) {
+                    updates.add(new BoardUpdateEntry(candidates.get(i), UpdateColor.RED, Integer.toString(i)));
                 } else {
-                    updates.add(new BoardUpdateEntry(candidates.get(i), UpdateColor.GRAY, Integer.toString(i)));
+                    updates.add(new BoardUpdateEntry(candidates.get(i), UpdateColor.GREEN, Integer.toString(i)));
                 }
+            } else {
+                updates.add(new BoardUpdateEntry(candidates.get(i), UpdateColor.GRAY, Integer.toString(i)));
             }
+        }
 
-            bestIndex = -1;
-            return new BoardUpdate(updates, "Iterations: " + iterations);
-        });
+        bestIndex = -1;
+        return new BoardUpdate(updates, "Iterations: " + iterations);
+    }
+
+    /**
+     * The backtracking problem, flattened. Numbers next to the variables are the constraints.
+     */
+    private class Search {
+        final boolean[] isMine;
+        // constraintsOfVariable[constraintsOfVariableStart[v]...constraintsOfVariableStart[v+1]-1] are the
+        // constraints next to variable v.
+        final int[] constraintsOfVariableStart;
+        final int[] constraintsOfVariable;
+        final int[] minesNeeded;
+        final int[] variablesLeft;
+        final Consumer<boolean[]> onSolutionFound;
+        final Supplier<BoardUpdate> progress;
+
+        Search(PlayerView view, List<BoardCoord> variables, Consumer<boolean[]> onSolutionFound) {
+            FlatConstraints constraints = new FlatConstraints(view, variables);
+            isMine = new boolean[variables.size()];
+            constraintsOfVariableStart = constraints.constraintsOfVariableStart;
+            constraintsOfVariable = constraints.constraintsOfVariable;
+            minesNeeded = constraints.minesNeeded.clone();
+            variablesLeft = constraints.numVariablesOf.clone();
+
+            this.onSolutionFound = onSolutionFound;
+            this.progress = () -> getProgressUpdate(variables);
+        }
     }
 
     // Visible for testing only
@@ -238,7 +236,7 @@ public class BackTrackAI extends MineSweeperAI {
 
                     if (!seen[nx][ny]
                             && view.getSquareState(thisCoord) == SquareState.UNKNOWN
-                            && view.getNeighbours(thisCoord, SquareState.PROBED).size() > 0
+                            && view.countNeighbours(thisCoord, SquareState.PROBED) > 0
                     ) {
                         seen[nx][ny] = true;
                         candidates.add(thisCoord);
@@ -21,12 +21,27 @@ import java.util.stream.Collectors;
 public class BackTrackComboAI extends BackTrackAI {
     private static final MathContext MATH_CONTEXT = new MathContext(36, RoundingMode.HALF_DOWN);
 
+    private final GroupResultCache groupResultCache = new GroupResultCache();
+    private PatternDatabase patternDatabase = PatternDatabase.getDefault();
+    private final MineCombinationFinder combinationFinder;
+
+    public BackTrackComboAI() {
+        this.combinationFinder = this;
+    }
+
+    /**
+     * @param combinationFinder engine used to enumerate the solutions of each group.
+     */
+    public BackTrackComboAI(MineCombinationFinder combinationFinder) {
+        this.combinationFinder = combinationFinder;
+    }
+
     @Override
     public Move calculate(PlayerView view) {
         List<List<BoardCoord>> candidateGroups = getGroupsOfBorders(view);
 
         List<BoardCoord> unconstrainedSquares = view.getAllSquares(SquareState.UNKNOWN);
-        int availableMines = view.getTotalMines() - view.getAllSquares(SquareState.FLAGGED).size();
+        int availableMines = view.getTotalMines() - view.getSquareCount(SquareState.FLAGGED);
         candidateGroups.forEach(unconstrainedSquares::removeAll);
 
         // If we just started, hit (2, 2) if possible.
@@ -43,7 +58,7 @@ public class BackTrackComboAI extends BackTrackAI {
 
         List<GroupResult> groupResults;
         try {
-            groupResults = processGroups(view, candidateGroups);
+            groupResults = processGroupsCached(view, candidateGroups);
         } catch (InterruptedException e) {
             reportProgressImmediate(new BoardUpdate(Collections.emptyList(), "Processing was interrupted"));
             return new Move(null, null);
@@ -97,7 +112,7 @@ public class BackTrackComboAI extends BackTrackAI {
 
             if (!seen[l.getX()][l.getY()]
                     && view.getSquareState(l) == SquareState.UNKNOWN
-                    && view.getNeighbours(l, SquareState.PROBED).size() > 0
+                    && view.countNeighbours(l, SquareState.PROBED) > 0
             ) {
                 dfsProbed.add(l);
                 candidates.add(l);
@@ -217,37 +232,106 @@ public class BackTrackComboAI extends BackTrackAI {
         return diff.compareTo(maxDiffA) <= 0 && diff.compareTo(maxDiffB) <= 0;
     }
 
-    protected List<GroupResult> processGroups(
+    /**
+     * Solves only the groups that are not known patterns and have changed since they were last seen. The rest are
+     * taken from the pattern database or the cache.
+     *
+     * A square that is safe (or a mine) in every solution of its group is safe (or a mine) no matter how the other
+     * mines are distributed, so those are reported as certain moves as soon as their group is done. Remaining groups
+     * are solved smallest first, to get certain moves out early.
+     */
+    private List<GroupResult> processGroupsCached(
             PlayerView view,
             List<List<BoardCoord>> candidateGroups
     ) throws InterruptedException {
-        List<GroupResult> retVal = new ArrayList<>();
-        for (List<BoardCoord> candidates : candidateGroups) {
-            // Build probability table, indicating the number of solutions[x][y][z] with (x, y) being a mine, and (z)
-            // mines in the group.
-            int[][][] numWaysToBeMine = new int[view.getWidth()][view.getHeight()][candidates.size() + 1];
+        List<GroupResult> retVal = new ArrayList<>(Collections.nCopies(candidateGroups.size(), null));
+        List<Integer> toSolveIndices = new ArrayList<>();
+        Map<Integer, GroupResultCache.Key> toSolveKeys = new HashMap<>();
+
+        for (int i = 0; i < candidateGroups.size(); i++) {
+            List<BoardCoord> group = candidateGroups.get(i);
+            GroupResult known = patternDatabase.lookup(view, group);
+            if (known != null) {
+                retVal.set(i, known);
+                reportCertainSquares(known);
+                continue;
+            }
 
-            int numSolutionsByMineCount[] = new int[candidates.size() + 1];
+            GroupResultCache.Key key = GroupResultCache.keyOf(view, group);
+            GroupResult cached = groupResultCache.get(key, group);
+            if (cached != null) {
+                retVal.set(i, cached);
+                reportCertainSquares(cached);
+            } else {
+                toSolveIndices.add(i);
+                toSolveKeys.put(i, key);
+            }
+        }
 
-            int totalSolutions = findCombinationsOfMines(view, candidates, (isMine) -> {
-                int mineCount = 0;
-                for (boolean b : isMine) {
-                    if (b) mineCount++;
-                }
+        toSolveIndices.sort(Comparator.comparingInt(i -> candidateGroups.get(i).size()));
+        for (int i : toSolveIndices) {
+            GroupResult solved = processGroups(view, Collections.singletonList(candidateGroups.get(i))).get(0);
+            retVal.set(i, solved);
+            groupResultCache.put(toSolveKeys.get(i), solved);
+            reportCertainSquares(solved);
+        }
 
-                for (int i = 0; i < candidates.size(); i++) {
-                    int x = candidates.get(i).getX();
-                    int y = candidates.get(i).getY();
-                    if (isMine[i]) {
-                        numWaysToBeMine[x][y][mineCount]++;
-                    }
+        reportProgress(() -> new BoardUpdate(null, "Solved " + toSolveIndices.size() + " of "
+                + candidateGroups.size() + " groups. Group cache hits: " + groupResultCache.getHits()
+                + ", misses: " + groupResultCache.getMisses()));
+        return retVal;
+    }
+
+    private void reportCertainSquares(GroupResult group) {
+        if (certainMoveHandler == null) {
+            return;
+        }
+
+        List<BoardCoord> toProbe = new ArrayList<>();
+        List<BoardCoord> toFlag = new ArrayList<>();
+        for (int i = 0; i < group.boardCoords.size(); i++) {
+            boolean alwaysSafe = true;
+            boolean alwaysMine = true;
+            for (GroupResultEntry entry : group.groupResults) {
+                BigDecimal numMine = entry.squareResults.get(i);
+                if (numMine.signum() != 0) {
+                    alwaysSafe = false;
                 }
-                numSolutionsByMineCount[mineCount]++;
-            });
+                if (numMine.compareTo(entry.totalSolutions) != 0) {
+                    alwaysMine = false;
+                }
+            }
+            if (alwaysSafe) {
+                toProbe.add(group.boardCoords.get(i));
+            } else if (alwaysMine) {
+                toFlag.add(group.boardCoords.get(i));
+            }
+        }
+        reportCertainMove(new Move(toProbe, toFlag));
+    }
+
+    public GroupResultCache getGroupResultCache() {
+        return groupResultCache;
+    }
+
+    public PatternDatabase getPatternDatabase() {
+        return patternDatabase;
+    }
 
-            retVal.add(createGroupResult(numWaysToBeMine, candidates, numSolutionsByMineCount));
+    public void setPatternDatabase(PatternDatabase patternDatabase) {
+        this.patternDatabase = patternDatabase;
+    }
 
-            if (totalSolutions == 0) {
+    protected List<GroupResult> processGroups(
+            PlayerView view,
+            List<List<BoardCoord>> candidateGroups
+    ) throws InterruptedException {
+        List<GroupResult> retVal = new ArrayList<>();
+        for (List<BoardCoord> candidates : candidateGroups) {
+            MineCounts counts = combinationFinder.countCombinationsOfMines(view, candidates);
+            retVal.add(createGroupResult(counts, candidates));
+
+            if (counts.getTotalSolutions().signum() == 0) {
                 reportProgressImmediate(new BoardUpdate(null, "No solutions for group"));
                 throw new IllegalStateException("No solutions for group");
             }
@@ -334,17 +418,13 @@ public class BackTrackComboAI extends BackTrackAI {
         return dp[thisGroupId][minesRemaining];
     }
 
-    private GroupResult createGroupResult(
-            int[][][] solution,
-            List<BoardCoord> candidates,
-            int[] numSolutionsByMineCount
-    ) {
+    private GroupResult createGroupResult(MineCounts counts, List<BoardCoord> candidates) {
         GroupResult retVal = new GroupResult(candidates);
 
-        for (int mineCount = 0; mineCount < numSolutionsByMineCount.length; mineCount++) {
-            GroupResultEntry entry = new GroupResultEntry(BigDecimal.valueOf(numSolutionsByMineCount[mineCount]));
-            for (BoardCoord candidate : candidates) {
-                entry.squareResults.add(BigDecimal.valueOf(solution[candidate.getX()][candidate.getY()][mineCount]));
+        for (int mineCount = 0; mineCount <= counts.getNumVariables(); mineCount++) {
+            GroupResultEntry entry = new GroupResultEntry(new BigDecimal(counts.getSolutions(mineCount)));
+            for (int i = 0; i < candidates.size(); i++) {
+                entry.squareResults.add(new BigDecimal(counts.getTimesMine(mineCount, i)));
             }
             retVal.addGroupResultEntry(entry);
         }
@@ -386,6 +466,9 @@ public class BackTrackComboAI extends BackTrackAI {
 
     @Override
     public String toString() {
+        if (combinationFinder != this) {
+            return "Backtrack Combinatorial AI (" + combinationFinder + ")";
+        }
         return "Backtrack Combinatorial AI";
     }
 }
@@ -0,0 +1,586 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Counts the solutions of a group without enumerating them, in the style of a #SAT model counter.
+ *
+ * After each decision and its propagation, the unassigned squares are split into components: squares connect through
+ * the numbers they share. Components have no numbers in common, so each is counted on its own, and their counts are
+ * combined by convolving over the number of mines. A component is identified by its squares and the mines still needed
+ * by the numbers around it, so the same component reached through different decisions is counted only once.
+ *
+ * The cost grows with the structure of the group rather than the number of solutions: a long frontier splits into
+ * pieces after a few decisions, where enumeration would multiply them together.
+ *
+ * Only {@link #countCombinationsOfMines} benefits. {@link #findCombinationsOfMines} must produce every solution, so it
+ * enumerates with the {@link PropagatingBackTracker}.
+ */
+public class ComponentCounter implements MineCombinationFinder {
+
+    public static final int DEFAULT_MAX_CACHED_COMPONENTS = 1 << 14;
+    private static final int NODES_PER_INTERRUPT_CHECK = 1 << 10;
+
+    private final int maxCachedComponents;
+    private final PropagatingBackTracker enumerator = new PropagatingBackTracker();
+
+    public ComponentCounter() {
+        this(DEFAULT_MAX_CACHED_COMPONENTS);
+    }
+
+    /**
+     * @param maxCachedComponents number of component counts to keep while counting a group. The cache is cleared when
+     *                            it fills up.
+     */
+    public ComponentCounter(int maxCachedComponents) {
+        if (maxCachedComponents < 0) {
+            throw new IllegalArgumentException("Cache size must be >= 0");
+        }
+        this.maxCachedComponents = maxCachedComponents;
+    }
+
+    @Override
+    public int findCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables,
+            Consumer<boolean[]> onSolutionFound
+    ) throws InterruptedException {
+        return enumerator.findCombinationsOfMines(view, variables, onSolutionFound);
+    }
+
+    @Override
+    public MineCounts countCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables
+    ) throws InterruptedException {
+        MineCounts counts = new MineCounts(variables.size());
+        Counter counter = new Counter(new FlatConstraints(view, variables));
+        if (!counter.propagateAll()) {
+            return counts;
+        }
+
+        int[] all = new int[variables.size()];
+        for (int v = 0; v < all.length; v++) {
+            all[v] = v;
+        }
+        Table table = counter.countAfterAssignments(all, 0);
+        for (int row = 0; row < table.numMineCounts; row++) {
+            BigInteger solutions = table.getSolutions(row);
+            if (solutions.signum() != 0) {
+                BigInteger[] timesMine = new BigInteger[all.length];
+                for (int i = 0; i < all.length; i++) {
+                    timesMine[i] = table.getTimesMine(row, i);
+                }
+                counts.add(table.minMines + row, solutions, timesMine);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "Component counting";
+    }
+
+    /**
+     * Counts for a set of variables, for the mine counts that have solutions: solutions[row] is the number of solutions
+     * with minMines + row mines among them, and timesMine[row][i] how many of those have variables[i] as a mine.
+     *
+     * Counts are kept in longs while they fit. A table with a count too big for a long keeps them all as BigIntegers
+     * instead, in bigSolutions and bigTimesMine, and the long arrays are null.
+     */
+    private static final class Table {
+        final int[] variables;
+        final int minMines;
+        final int numMineCounts;
+        final long[] solutions;
+        final long[][] timesMine;
+        final BigInteger[] bigSolutions;
+        final BigInteger[][] bigTimesMine;
+
+        Table(int[] variables, int minMines, long[] solutions, long[][] timesMine) {
+            this.variables = variables;
+            this.minMines = minMines;
+            this.numMineCounts = solutions.length;
+            this.solutions = solutions;
+            this.timesMine = timesMine;
+            this.bigSolutions = null;
+            this.bigTimesMine = null;
+        }
+
+        Table(int[] variables, int minMines, BigInteger[] solutions, BigInteger[][] timesMine) {
+            this.variables = variables;
+            this.minMines = minMines;
+            this.numMineCounts = solutions.length;
+            this.solutions = null;
+            this.timesMine = null;
+            this.bigSolutions = solutions;
+            this.bigTimesMine = timesMine;
+        }
+
+        static Table empty(int[] variables) {
+            return new Table(variables, 0, new long[0], new long[0][]);
+        }
+
+        boolean isEmpty() {
+            return numMineCounts == 0;
+        }
+
+        boolean isBig() {
+            return bigSolutions != null;
+        }
+
+        BigInteger getSolutions(int row) {
+            return isBig() ? bigSolutions[row] : BigInteger.valueOf(solutions[row]);
+        }
+
+        BigInteger getTimesMine(int row, int i) {
+            return isBig() ? bigTimesMine[row][i] : BigInteger.valueOf(timesMine[row][i]);
+        }
+
+        /**
+         * The counts of both tables together, for solutions of the same variables that don't overlap.
+         */
+        static Table sum(Table a, Table b) {
+            if (a.isEmpty()) {
+                return b;
+            }
+            if (b.isEmpty()) {
+                return a;
+            }
+            int minMines = Math.min(a.minMines, b.minMines);
+            int numMineCounts = Math.max(a.minMines + a.numMineCounts, b.minMines + b.numMineCounts) - minMines;
+            int n = a.variables.length;
+            if (!a.isBig() && !b.isBig()) {
+                try {
+                    long[] solutions = new long[numMineCounts];
+                    long[][] timesMine = new long[numMineCounts][n];
+                    for (Table t : new Table[]{a, b}) {
+                        for (int row = 0; row < t.numMineCounts; row++) {
+                            int to = t.minMines + row - minMines;
+                            solutions[to] = Math.addExact(solutions[to], t.solutions[row]);
+                            for (int i = 0; i < n; i++) {
+                                timesMine[to][i] = Math.addExact(timesMine[to][i], t.timesMine[row][i]);
+                            }
+                        }
+                    }
+                    return new Table(a.variables, minMines, solutions, timesMine);
+                } catch (ArithmeticException e) {
+                    // Too big for longs: counted again below.
+                }
+            }
+            BigInteger[] solutions = zeros(numMineCounts);
+            BigInteger[][] timesMine = new BigInteger[numMineCounts][];
+            for (int row = 0; row < numMineCounts; row++) {
+                timesMine[row] = zeros(n);
+            }
+            for (Table t : new Table[]{a, b}) {
+                for (int row = 0; row < t.numMineCounts; row++) {
+                    int to = t.minMines + row - minMines;
+                    solutions[to] = solutions[to].add(t.getSolutions(row));
+                    for (int i = 0; i < n; i++) {
+                        timesMine[to][i] = timesMine[to][i].add(t.getTimesMine(row, i));
+                    }
+                }
+            }
+            return new Table(a.variables, minMines, solutions, timesMine);
+        }
+
+        static BigInteger[] zeros(int length) {
+            BigInteger[] retVal = new BigInteger[length];
+            Arrays.fill(retVal, BigInteger.ZERO);
+            return retVal;
+        }
+    }
+
+    private class Counter extends Propagator {
+        final Map<GroupResultCache.Key, Table> cache = new HashMap<>();
+        // Scratch marks for finding components and their constraints, so nothing is allocated per square.
+        final int[] variableMark;
+        final int[] constraintMark;
+        int currentMark = 0;
+        int nodes = 0;
+        // Scratch tables for convolving in longs, by position in the variables being counted, and the positions that
+        // may be set in them. Components are all counted before any convolving starts, so one pair is enough.
+        long[] scratchSolutions = new long[0];
+        long[][] scratchTimesMine = new long[0][];
+        long[] nextSolutions = new long[0];
+        long[][] nextTimesMine = new long[0][];
+        final int[] filledPositions;
+        // Scratch for finding the middle of a component.
+        final int[] distance;
+        final int[] searchQueue;
+
+        Counter(FlatConstraints constraints) {
+            super(constraints);
+            variableMark = new int[numVariables];
+            constraintMark = new int[numConstraints];
+            filledPositions = new int[numVariables];
+            distance = new int[numVariables];
+            searchQueue = new int[numVariables];
+        }
+
+        /**
+         * Counts a component of unassigned variables, by branching on one of them.
+         */
+        Table count(int[] variables) throws InterruptedException {
+            if (++nodes % NODES_PER_INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            GroupResultCache.Key key = keyOf(variables);
+            Table retVal = cache.get(key);
+            if (retVal != null) {
+                return retVal;
+            }
+
+            retVal = Table.empty(variables);
+            int variable = pickVariable(variables);
+            int mark = trailSize;
+            for (int thisIsMine = 0; thisIsMine <= 1; thisIsMine++) {
+                if (assign(variable, thisIsMine) && propagate(mark)) {
+                    retVal = Table.sum(retVal, countAfterAssignments(variables, mark));
+                }
+                undo(mark);
+            }
+
+            if (cache.size() >= maxCachedComponents) {
+                cache.clear();
+            }
+            cache.put(key, retVal);
+            return retVal;
+        }
+
+        /**
+         * Counts the variables, given that the ones on the trail from mark have just been assigned. The rest are split
+         * into components, each counted separately, and then convolved together.
+         */
+        Table countAfterAssignments(int[] variables, int mark) throws InterruptedException {
+            List<int[]> components = splitIntoComponents(variables);
+            Table[] parts = new Table[components.size()];
+            boolean isBig = false;
+            for (int c = 0; c < parts.length; c++) {
+                parts[c] = count(components.get(c));
+                if (parts[c].isEmpty()) {
+                    return Table.empty(variables);
+                }
+                isBig |= parts[c].isBig();
+            }
+
+            // The assigned variables on their own are a single solution.
+            int assignedMines = 0;
+            int numAssignedMines = 0;
+            int[] assignedMinePositions = new int[trailSize - mark];
+            for (int t = mark; t < trailSize; t++) {
+                if (value[trail[t]] == 1) {
+                    assignedMines++;
+                    assignedMinePositions[numAssignedMines++] = Arrays.binarySearch(variables, trail[t]);
+                }
+            }
+            assignedMinePositions = Arrays.copyOf(assignedMinePositions, numAssignedMines);
+
+            if (!isBig) {
+                try {
+                    return convolveLongs(variables, assignedMines, assignedMinePositions, parts);
+                } catch (ArithmeticException e) {
+                    // Too big for longs: counted again below.
+                }
+            }
+            return convolveBig(variables, assignedMines, assignedMinePositions, parts);
+        }
+
+        /**
+         * Convolves the parts together in longs, in the two scratch tables, and copies out only the result. Only the
+         * positions of the assigned mines and the parts convolved so far are ever set.
+         *
+         * @throws ArithmeticException if a count doesn't fit in a long.
+         */
+        private Table convolveLongs(int[] variables, int assignedMines, int[] assignedMinePositions, Table[] parts) {
+            int numRows = 1;
+            int numFilled = 0;
+            ensureScratchRows(1);
+            scratchSolutions[0] = 1;
+            for (int position : assignedMinePositions) {
+                scratchTimesMine[0][position] = 1;
+                filledPositions[numFilled++] = position;
+            }
+
+            int[] positions = new int[variables.length];
+            for (Table part : parts) {
+                for (int q = 0; q < part.variables.length; q++) {
+                    positions[q] = Arrays.binarySearch(variables, part.variables[q]);
+                }
+                int numRowsAfter = numRows + part.numMineCounts - 1;
+                ensureScratchRows(numRowsAfter);
+                for (int k = 0; k < numRowsAfter; k++) {
+                    nextSolutions[k] = 0;
+                    for (int f = 0; f < numFilled; f++) {
+                        nextTimesMine[k][filledPositions[f]] = 0;
+                    }
+                    for (int q = 0; q < part.variables.length; q++) {
+                        nextTimesMine[k][positions[q]] = 0;
+                    }
+                }
+
+                for (int i = 0; i < numRows; i++) {
+                    long solutionsI = scratchSolutions[i];
+                    if (solutionsI == 0) {
+                        continue;
+                    }
+                    for (int j = 0; j < part.numMineCounts; j++) {
+                        long solutionsJ = part.solutions[j];
+                        if (solutionsJ == 0) {
+                            continue;
+                        }
+                        int k = i + j;
+                        nextSolutions[k] = Math.addExact(nextSolutions[k], Math.multiplyExact(solutionsI, solutionsJ));
+                        long[] to = nextTimesMine[k];
+                        long[] fromI = scratchTimesMine[i];
+                        for (int f = 0; f < numFilled; f++) {
+                            int p = filledPositions[f];
+                            if (fromI[p] != 0) {
+                                to[p] = Math.addExact(to[p], Math.multiplyExact(fromI[p], solutionsJ));
+                            }
+                        }
+                        long[] fromJ = part.timesMine[j];
+                        for (int q = 0; q < part.variables.length; q++) {
+                            if (fromJ[q] != 0) {
+                                int p = positions[q];
+                                to[p] = Math.addExact(to[p], Math.multiplyExact(solutionsI, fromJ[q]));
+                            }
+                        }
+                    }
+                }
+
+                for (int q = 0; q < part.variables.length; q++) {
+                    filledPositions[numFilled++] = positions[q];
+                }
+                numRows = numRowsAfter;
+                long[] swapSolutions = scratchSolutions;
+                scratchSolutions = nextSolutions;
+                nextSolutions = swapSolutions;
+                long[][] swapTimesMine = scratchTimesMine;
+                scratchTimesMine = nextTimesMine;
+                nextTimesMine = swapTimesMine;
+            }
+
+            int minMines = assignedMines;
+            for (Table part : parts) {
+                minMines += part.minMines;
+            }
+            long[] solutions = Arrays.copyOf(scratchSolutions, numRows);
+            long[][] timesMine = new long[numRows][variables.length];
+            for (int k = 0; k < numRows; k++) {
+                for (int f = 0; f < numFilled; f++) {
+                    timesMine[k][filledPositions[f]] = scratchTimesMine[k][filledPositions[f]];
+                }
+            }
+            return new Table(variables, minMines, solutions, timesMine);
+        }
+
+        /**
+         * Same as {@link #convolveLongs}, for counts too big for longs. Only the largest groups get here.
+         */
+        private Table convolveBig(int[] variables, int assignedMines, int[] assignedMinePositions, Table[] parts) {
+            int n = variables.length;
+            BigInteger[] solutions = {BigInteger.ONE};
+            BigInteger[][] timesMine = {Table.zeros(n)};
+            for (int position : assignedMinePositions) {
+                timesMine[0][position] = BigInteger.ONE;
+            }
+            int minMines = assignedMines;
+            int[] positions = new int[n];
+            for (Table part : parts) {
+                for (int q = 0; q < part.variables.length; q++) {
+                    positions[q] = Arrays.binarySearch(variables, part.variables[q]);
+                }
+                int numRowsAfter = solutions.length + part.numMineCounts - 1;
+                BigInteger[] nextSolutions = Table.zeros(numRowsAfter);
+                BigInteger[][] nextTimesMine = new BigInteger[numRowsAfter][];
+                for (int k = 0; k < numRowsAfter; k++) {
+                    nextTimesMine[k] = Table.zeros(n);
+                }
+                for (int i = 0; i < solutions.length; i++) {
+                    if (solutions[i].signum() == 0) {
+                        continue;
+                    }
+                    for (int j = 0; j < part.numMineCounts; j++) {
+                        BigInteger solutionsJ = part.getSolutions(j);
+                        if (solutionsJ.signum() == 0) {
+                            continue;
+                        }
+                        int k = i + j;
+                        nextSolutions[k] = nextSolutions[k].add(solutions[i].multiply(solutionsJ));
+                        for (int p = 0; p < n; p++) {
+                            if (timesMine[i][p].signum() != 0) {
+                                nextTimesMine[k][p] = nextTimesMine[k][p].add(timesMine[i][p].multiply(solutionsJ));
+                            }
+                        }
+                        for (int q = 0; q < part.variables.length; q++) {
+                            BigInteger timesMineJ = part.getTimesMine(j, q);
+                            if (timesMineJ.signum() != 0) {
+                                nextTimesMine[k][positions[q]] =
+                                        nextTimesMine[k][positions[q]].add(solutions[i].multiply(timesMineJ));
+                            }
+                        }
+                    }
+                }
+                solutions = nextSolutions;
+                timesMine = nextTimesMine;
+                minMines += part.minMines;
+            }
+            return new Table(variables, minMines, solutions, timesMine);
+        }
+
+        /**
+         * Makes room for the given number of mine counts in both scratch tables. They are left as they were last used:
+         * only the positions a convolution is about to read are cleared, so it never looks at the rest.
+         */
+        private void ensureScratchRows(int numRows) {
+            if (scratchSolutions.length < numRows) {
+                int length = Math.max(numRows, scratchSolutions.length * 2);
+                scratchSolutions = Arrays.copyOf(scratchSolutions, length);
+                nextSolutions = Arrays.copyOf(nextSolutions, length);
+                scratchTimesMine = Arrays.copyOf(scratchTimesMine, length);
+                nextTimesMine = Arrays.copyOf(nextTimesMine, length);
+            }
+            for (int k = 0; k < numRows; k++) {
+                if (scratchTimesMine[k] == null) {
+                    scratchTimesMine[k] = new long[numVariables];
+                }
+                if (nextTimesMine[k] == null) {
+                    nextTimesMine[k] = new long[numVariables];
+                }
+            }
+        }
+
+        /**
+         * Splits the unassigned variables into groups that share no open constraint. Each is sorted.
+         */
+        private List<int[]> splitIntoComponents(int[] variables) {
+            List<int[]> components = new ArrayList<>();
+            int[] stack = new int[variables.length];
+            currentMark++;
+            for (int start : variables) {
+                if (value[start] != UNASSIGNED || variableMark[start] == currentMark) {
+                    continue;
+                }
+                int size = 0;
+                int head = 0;
+                stack[size++] = start;
+                variableMark[start] = currentMark;
+                while (head < size) {
+                    int v = stack[head++];
+                    for (int i = constraintsOfVariableStart[v]; i < constraintsOfVariableStart[v + 1]; i++) {
+                        int c = constraintsOfVariable[i];
+                        for (int j = variablesOfConstraintStart[c]; j < variablesOfConstraintStart[c + 1]; j++) {
+                            int w = variablesOfConstraint[j];
+                            if (value[w] == UNASSIGNED && variableMark[w] != currentMark) {
+                                variableMark[w] = currentMark;
+                                stack[size++] = w;
+                            }
+                        }
+                    }
+                }
+                int[] component = Arrays.copyOf(stack, size);
+                Arrays.sort(component);
+                components.add(component);
+            }
+            return components;
+        }
+
+        /**
+         * The variables of a component, then each constraint around them with the mines it still needs. Variables
+         * of those constraints outside the component are all assigned, so this fixes the component's counts.
+         */
+        private GroupResultCache.Key keyOf(int[] variables) {
+            currentMark++;
+            int numConstraintsOf = 0;
+            int[] constraints = new int[numConstraints];
+            for (int v : variables) {
+                for (int i = constraintsOfVariableStart[v]; i < constraintsOfVariableStart[v + 1]; i++) {
+                    int c = constraintsOfVariable[i];
+                    if (constraintMark[c] != currentMark) {
+                        constraintMark[c] = currentMark;
+                        constraints[numConstraintsOf++] = c;
+                    }
+                }
+            }
+            Arrays.sort(constraints, 0, numConstraintsOf);
+
+            int[] data = new int[variables.length + 1 + numConstraintsOf * 2];
+            System.arraycopy(variables, 0, data, 0, variables.length);
+            int i = variables.length;
+            data[i++] = -1;
+            for (int j = 0; j < numConstraintsOf; j++) {
+                data[i++] = constraints[j];
+                data[i++] = minesNeeded[constraints[j]];
+            }
+            return new GroupResultCache.Key(data);
+        }
+
+        /**
+         * The variable next to the most constraints, which does the most to split the component apart. Ties go to
+         * the variable nearest the middle of the component: halfway along the longest path found by searching
+         * breadth first from one end. This cuts long borders in half instead of shaving one square off the end, and
+         * the next variable picked is next to this one, so the two decisions together usually cut the border.
+         */
+        private int pickVariable(int[] variables) {
+            int end = searchFrom(variables[0]);
+            int otherEnd = searchFrom(end);
+            int middle = distance[otherEnd] / 2;
+            int best = variables[0];
+            for (int v : variables) {
+                int degree = degreeOf(v);
+                int bestDegree = degreeOf(best);
+                if (degree > bestDegree || (degree == bestDegree
+                        && Math.abs(distance[v] - middle) < Math.abs(distance[best] - middle))) {
+                    best = v;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Sets the distance of every variable of the component from the given one, in shared constraints.
+         *
+         * @return the last variable reached, one of the furthest away.
+         */
+        private int searchFrom(int start) {
+            currentMark++;
+            int size = 0;
+            int head = 0;
+            searchQueue[size++] = start;
+            variableMark[start] = currentMark;
+            distance[start] = 0;
+            while (head < size) {
+                int v = searchQueue[head++];
+                for (int i = constraintsOfVariableStart[v]; i < constraintsOfVariableStart[v + 1]; i++) {
+                    int c = constraintsOfVariable[i];
+                    for (int j = variablesOfConstraintStart[c]; j < variablesOfConstraintStart[c + 1]; j++) {
+                        int w = variablesOfConstraint[j];
+                        if (value[w] == UNASSIGNED && variableMark[w] != currentMark) {
+                            variableMark[w] = currentMark;
+                            distance[w] = distance[v] + 1;
+                            searchQueue[size++] = w;
+                        }
+                    }
+                }
+            }
+            return searchQueue[size - 1];
+        }
+
+        private int degreeOf(int variable) {
+            return constraintsOfVariableStart[variable + 1] - constraintsOfVariableStart[variable];
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import com.skyplusplus.minesolver.core.gamelogic.SquareState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The numbers next to a list of variables, flattened into int arrays for the backtracking engines. Constraint ids are
+ * given to numbers in the order they are first seen from the variables.
+ *
+ * Adjacency is stored CSR style both ways: constraintsOfVariable[constraintsOfVariableStart[v] ...
+ * constraintsOfVariableStart[v+1]-1] are the constraints next to variable v, and likewise for the variables of each
+ * constraint.
+ */
+class FlatConstraints {
+    final int numVariables;
+    final int numConstraints;
+    final int[] constraintsOfVariableStart;
+    final int[] constraintsOfVariable;
+    final int[] variablesOfConstraintStart;
+    final int[] variablesOfConstraint;
+    // Mines each number still needs, after taking away its flags.
+    final int[] minesNeeded;
+    // Number of variables next to each number.
+    final int[] numVariablesOf;
+
+    FlatConstraints(PlayerView view, List<BoardCoord> variables) {
+        Map<BoardCoord, Integer> constraintIds = new HashMap<>();
+        List<Integer> minesNeededList = new ArrayList<>();
+        List<Integer> constraintsOfVariableList = new ArrayList<>();
+
+        numVariables = variables.size();
+        constraintsOfVariableStart = new int[numVariables + 1];
+        for (int v = 0; v < numVariables; v++) {
+            constraintsOfVariableStart[v] = constraintsOfVariableList.size();
+            for (BoardCoord number : view.getNeighbours(variables.get(v), SquareState.PROBED)) {
+                Integer id = constraintIds.get(number);
+                if (id == null) {
+                    id = minesNeededList.size();
+                    constraintIds.put(number, id);
+                    minesNeededList.add(view.getSquareMineCount(number)
+                            - view.countNeighbours(number, SquareState.FLAGGED));
+                }
+                constraintsOfVariableList.add(id);
+            }
+        }
+        constraintsOfVariableStart[numVariables] = constraintsOfVariableList.size();
+        numConstraints = minesNeededList.size();
+
+        constraintsOfVariable = new int[constraintsOfVariableList.size()];
+        numVariablesOf = new int[numConstraints];
+        for (int i = 0; i < constraintsOfVariable.length; i++) {
+            constraintsOfVariable[i] = constraintsOfVariableList.get(i);
+            numVariablesOf[constraintsOfVariable[i]]++;
+        }
+        minesNeeded = new int[numConstraints];
+        for (int c = 0; c < numConstraints; c++) {
+            minesNeeded[c] = minesNeededList.get(c);
+        }
+
+        variablesOfConstraintStart = new int[numConstraints + 1];
+        for (int c = 0; c < numConstraints; c++) {
+            variablesOfConstraintStart[c + 1] = variablesOfConstraintStart[c] + numVariablesOf[c];
+        }
+        variablesOfConstraint = new int[constraintsOfVariable.length];
+        int[] fill = new int[numConstraints];
+        for (int v = 0; v < numVariables; v++) {
+            for (int i = constraintsOfVariableStart[v]; i < constraintsOfVariableStart[v + 1]; i++) {
+                int c = constraintsOfVariable[i];
+                variablesOfConstraint[variablesOfConstraintStart[c] + fill[c]++] = v;
+            }
+        }
+    }
+}
@@ -3,31 +3,44 @@ package com.skyplusplus.minesolver.core.ai.backtrack;
 import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
 import com.skyplusplus.minesolver.core.ai.Move;
 import com.skyplusplus.minesolver.core.ai.frontier.FrontierAI;
+import com.skyplusplus.minesolver.core.ai.simple.LocalPatternAI;
 import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
 import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
 
+/**
+ * Tries the cheap AIs before the frontier DP. The cheap ones only find certain moves, so all guessing is still left
+ * to the frontier DP. Which of them are worth trying is up to the {@link TierScheduler}.
+ */
 public class FrankensteinAI extends MineSweeperAI {
 
-    private final MineSweeperAI goodAI = new FrontierAI();
-    private final SimpleAI simpleAI = new SimpleAI(false);
-    private static final int MAX_SIMPLES_IN_A_ROW = 3;
+    private final MineSweeperAI[] tiers = {
+            new SimpleAI(false),
+            new LocalPatternAI(),
+            new FrontierAI()
+    };
+    private final TierScheduler scheduler = new TierScheduler("Simple", "Local Pattern", "Frontier DP");
 
-    private int simplesInARow = 0;
     @Override
     public Move calculate(PlayerView view) {
-        if (simplesInARow == MAX_SIMPLES_IN_A_ROW) {
-            simplesInARow = 0;
-            return goodAI.calculate(view, this.handler);
-        } else {
-            Move firstTry = simpleAI.calculate(view, this.handler);
-            if (firstTry.getToFlag().isEmpty() && firstTry.getToProbe().isEmpty()) {
-                simplesInARow = 0;
-                return goodAI.calculate(view, this.handler);
-            } else {
-                simplesInARow++;
-                return firstTry;
+        scheduler.startMove();
+        Move move = null;
+        for (int i = 0; i < tiers.length; i++) {
+            if (!scheduler.shouldRun(i)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            move = tiers[i].calculate(view, this.handler, this.certainMoveHandler);
+            int movesFound = move.getToProbe().size() + move.getToFlag().size();
+            scheduler.record(i, System.nanoTime() - start, movesFound);
+            if (movesFound > 0) {
+                break;
             }
         }
+        return move;
+    }
+
+    public TierScheduler getScheduler() {
+        return scheduler;
     }
 
     @Override
@@ -0,0 +1,177 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI.GroupResult;
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI.GroupResultEntry;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import com.skyplusplus.minesolver.core.gamelogic.SquareState;
+
+import java.util.*;
+
+/**
+ * Remembers solved groups between moves. Most groups on the board don't change from one move to the next, so there
+ * is no point solving them again.
+ *
+ * A group is identified by its signature: the squares in it, and the position and effective number (number minus
+ * neighbouring flags) of every probed square constraining it. Two groups with the same signature have the same rules
+ * and therefore the same result, regardless of what else is on the board.
+ *
+ * The cache is bounded by the number of per-square results it holds, and evicts the least recently used groups first.
+ */
+public class GroupResultCache {
+
+    public static final int DEFAULT_MAX_CACHED_RESULTS = 1 << 20;
+
+    private final int maxCachedResults;
+    private final LinkedHashMap<Key, GroupResult> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedResults = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public GroupResultCache() {
+        this(DEFAULT_MAX_CACHED_RESULTS);
+    }
+
+    /**
+     * @param maxCachedResults memory cap, as the total number of per-square, per-mine-count results to keep.
+     */
+    public GroupResultCache(int maxCachedResults) {
+        if (maxCachedResults < 0) {
+            throw new IllegalArgumentException("Cache size must be >= 0");
+        }
+        this.maxCachedResults = maxCachedResults;
+    }
+
+    /**
+     * Builds the signature of a group in the given view.
+     */
+    public static Key keyOf(PlayerView view, List<BoardCoord> group) {
+        List<BoardCoord> squares = new ArrayList<>(group);
+        squares.sort(COORD_ORDER);
+
+        Set<BoardCoord> numbers = new HashSet<>();
+        for (BoardCoord square : group) {
+            numbers.addAll(view.getNeighbours(square, SquareState.PROBED));
+        }
+        List<BoardCoord> sortedNumbers = new ArrayList<>(numbers);
+        sortedNumbers.sort(COORD_ORDER);
+
+        int[] data = new int[2 + squares.size() * 2 + sortedNumbers.size() * 3];
+        int i = 0;
+        data[i++] = squares.size();
+        for (BoardCoord square : squares) {
+            data[i++] = square.getX();
+            data[i++] = square.getY();
+        }
+        data[i++] = sortedNumbers.size();
+        for (BoardCoord number : sortedNumbers) {
+            data[i++] = number.getX();
+            data[i++] = number.getY();
+            data[i++] = view.getSquareMineCount(number) - view.countNeighbours(number, SquareState.FLAGGED);
+        }
+        return new Key(data);
+    }
+
+    /**
+     * Looks up a previously solved group.
+     *
+     * @param key   signature of the group
+     * @param group the squares of the group, in the order the result should be reported in
+     * @return the result for the group, or null if it has to be solved.
+     */
+    public GroupResult get(Key key, List<BoardCoord> group) {
+        GroupResult cached = cache.get(key);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (cached.boardCoords.equals(group)) {
+            return cached;
+        }
+        return reorder(cached, group);
+    }
+
+    public void put(Key key, GroupResult result) {
+        long cost = costOf(result);
+        if (cost > maxCachedResults) {
+            return;
+        }
+
+        GroupResult previous = cache.put(key, result);
+        if (previous != null) {
+            cachedResults -= costOf(previous);
+        }
+        cachedResults += cost;
+
+        Iterator<GroupResult> eldest = cache.values().iterator();
+        while (cachedResults > maxCachedResults && eldest.hasNext()) {
+            cachedResults -= costOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+        cachedResults = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static long costOf(GroupResult result) {
+        return (long) result.boardCoords.size() * result.groupResults.size();
+    }
+
+    private static GroupResult reorder(GroupResult cached, List<BoardCoord> group) {
+        Map<BoardCoord, Integer> cachedIndex = new HashMap<>();
+        for (int i = 0; i < cached.boardCoords.size(); i++) {
+            cachedIndex.put(cached.boardCoords.get(i), i);
+        }
+
+        GroupResult retVal = new GroupResult(group);
+        for (GroupResultEntry cachedEntry : cached.groupResults) {
+            GroupResultEntry entry = new GroupResultEntry(cachedEntry.totalSolutions);
+            for (BoardCoord square : group) {
+                entry.squareResults.add(cachedEntry.squareResults.get(cachedIndex.get(square)));
+            }
+            retVal.addGroupResultEntry(entry);
+        }
+        return retVal;
+    }
+
+    private static final Comparator<BoardCoord> COORD_ORDER =
+            Comparator.comparingInt(BoardCoord::getX).thenComparingInt(BoardCoord::getY);
+
+    public static final class Key {
+        final int[] data;
+        private final int hash;
+
+        Key(int[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other instanceof Key) {
+                return this.hash == ((Key) other).hash && Arrays.equals(this.data, ((Key) other).data);
+            }
+            return false;
+        }
+    }
+}
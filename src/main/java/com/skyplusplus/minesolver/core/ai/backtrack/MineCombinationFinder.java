@@ -0,0 +1,40 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Something that can list every way to place mines on a set of unknown squares, so that all the numbers next to them
+ * are satisfied by those squares alone.
+ */
+public interface MineCombinationFinder {
+
+    /**
+     * @param view            player view state
+     * @param variables       the unknown squares to place mines on
+     * @param onSolutionFound called with isMine[i] for variables.get(i), once per solution. The array may be reused
+     *                        between calls.
+     * @return the number of solutions.
+     * @throws ArithmeticException if there are more solutions than an int holds, for engines that can get that far.
+     */
+    int findCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables,
+            Consumer<boolean[]> onSolutionFound
+    ) throws InterruptedException;
+
+    /**
+     * Counts the solutions of the variables by number of mines, and how often each variable is a mine.
+     */
+    default MineCounts countCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables
+    ) throws InterruptedException {
+        MineCounts counts = new MineCounts(variables.size());
+        findCombinationsOfMines(view, variables, counts::add);
+        return counts;
+    }
+}
@@ -0,0 +1,105 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import java.math.BigInteger;
+
+/**
+ * Solution counts of a group, split by the number of mines in the solution: how many solutions there are, and how
+ * many of them have each variable as a mine.
+ *
+ * Solutions found one at a time are counted in longs, since an enumeration will never get through more than a long's
+ * worth. Counts added in bulk by an engine that doesn't enumerate can be much bigger, and are kept as BigIntegers.
+ */
+public class MineCounts {
+    private final long[] solutions;
+    private final long[][] timesMine;
+    // Null until counts are added in bulk.
+    private BigInteger[] bulkSolutions;
+    private BigInteger[][] bulkTimesMine;
+
+    public MineCounts(int numVariables) {
+        solutions = new long[numVariables + 1];
+        timesMine = new long[numVariables + 1][numVariables];
+    }
+
+    /**
+     * Counts one solution.
+     */
+    public void add(boolean[] isMine) {
+        int mineCount = 0;
+        for (boolean b : isMine) {
+            if (b) mineCount++;
+        }
+
+        solutions[mineCount]++;
+        long[] timesMineForCount = timesMine[mineCount];
+        for (int i = 0; i < isMine.length; i++) {
+            if (isMine[i]) {
+                timesMineForCount[i]++;
+            }
+        }
+    }
+
+    /**
+     * Counts a number of solutions with the same number of mines at once.
+     *
+     * @param timesMine how many of the solutions have each variable as a mine.
+     */
+    public void add(int mineCount, BigInteger solutions, BigInteger[] timesMine) {
+        if (timesMine.length != getNumVariables()) {
+            throw new IllegalArgumentException("Expected counts for " + getNumVariables() + " variables");
+        }
+        if (bulkSolutions == null) {
+            bulkSolutions = new BigInteger[this.solutions.length];
+            bulkTimesMine = new BigInteger[this.solutions.length][getNumVariables()];
+        }
+        bulkSolutions[mineCount] = plus(bulkSolutions[mineCount], solutions);
+        for (int i = 0; i < timesMine.length; i++) {
+            bulkTimesMine[mineCount][i] = plus(bulkTimesMine[mineCount][i], timesMine[i]);
+        }
+    }
+
+    /**
+     * Adds the counts of another set of solutions of the same variables.
+     */
+    public void add(MineCounts other) {
+        for (int mineCount = 0; mineCount < solutions.length; mineCount++) {
+            solutions[mineCount] += other.solutions[mineCount];
+            for (int i = 0; i < timesMine[mineCount].length; i++) {
+                timesMine[mineCount][i] += other.timesMine[mineCount][i];
+            }
+        }
+        if (other.bulkSolutions != null) {
+            for (int mineCount = 0; mineCount < solutions.length; mineCount++) {
+                if (other.bulkSolutions[mineCount] != null) {
+                    add(mineCount, other.bulkSolutions[mineCount], other.bulkTimesMine[mineCount]);
+                }
+            }
+        }
+    }
+
+    public int getNumVariables() {
+        return solutions.length - 1;
+    }
+
+    public BigInteger getSolutions(int mineCount) {
+        BigInteger retVal = BigInteger.valueOf(solutions[mineCount]);
+        return bulkSolutions == null ? retVal : plus(bulkSolutions[mineCount], retVal);
+    }
+
+    public BigInteger getTimesMine(int mineCount, int variable) {
+        BigInteger retVal = BigInteger.valueOf(timesMine[mineCount][variable]);
+        return bulkTimesMine == null ? retVal : plus(bulkTimesMine[mineCount][variable], retVal);
+    }
+
+    public BigInteger getTotalSolutions() {
+        BigInteger total = BigInteger.ZERO;
+        for (int mineCount = 0; mineCount < solutions.length; mineCount++) {
+            total = total.add(getSolutions(mineCount));
+        }
+        return total;
+    }
+
+    private static BigInteger plus(BigInteger a, BigInteger b) {
+        return a == null ? b : b == null ? a : a.add(b);
+    }
+}
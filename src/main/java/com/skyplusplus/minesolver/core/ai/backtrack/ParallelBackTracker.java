@@ -0,0 +1,235 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * The plain backtracker, with the search tree split between threads when counting.
+ *
+ * The first splitDepth variables are branched on as fork/join tasks, each with its own copy of the search state.
+ * Below that, every task backtracks its subtree on its own and counts solutions into its own {@link MineCounts}, which
+ * are added together as the tasks join. Counts are summed exactly, so the result is the same as the serial search.
+ *
+ * Branches pruned in the first splitDepth levels never become tasks, so there are usually fewer than 2^splitDepth.
+ * Small groups aren't worth splitting, and are counted on the calling thread.
+ *
+ * {@link #findCombinationsOfMines} hands every solution to one callback, so it always runs serially.
+ */
+public class ParallelBackTracker implements MineCombinationFinder {
+
+    public static final int MIN_PARALLEL_VARIABLES = 20;
+    private static final int TASKS_PER_THREAD = 16;
+    private static final int NODES_PER_CANCEL_CHECK = 1 << 12;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    public ParallelBackTracker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelBackTracker(ForkJoinPool pool) {
+        this(pool, defaultSplitDepth(pool.getParallelism()));
+    }
+
+    /**
+     * @param splitDepth number of variables to branch on as separate tasks.
+     */
+    public ParallelBackTracker(ForkJoinPool pool, int splitDepth) {
+        if (splitDepth < 0) {
+            throw new IllegalArgumentException("Split depth must be >= 0");
+        }
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Enough levels for about TASKS_PER_THREAD tasks per thread, so threads that get small subtrees can steal more.
+     */
+    static int defaultSplitDepth(int parallelism) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(1, parallelism) * TASKS_PER_THREAD - 1);
+    }
+
+    public int getSplitDepth() {
+        return splitDepth;
+    }
+
+    @Override
+    public int findCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables,
+            Consumer<boolean[]> onSolutionFound
+    ) throws InterruptedException {
+        Subtree root = new Subtree(new FlatConstraints(view, variables));
+        try {
+            // Groups big enough for this engine can have more solutions than an int holds. Better to fail than to
+            // report a count that has wrapped around.
+            return Math.toIntExact(root.backtrack(0, onSolutionFound, Thread.currentThread()::isInterrupted));
+        } catch (CancellationException e) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public MineCounts countCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables
+    ) throws InterruptedException {
+        if (variables.size() < MIN_PARALLEL_VARIABLES || splitDepth == 0) {
+            MineCounts counts = new MineCounts(variables.size());
+            findCombinationsOfMines(view, variables, counts::add);
+            return counts;
+        }
+
+        CountTask root = new CountTask(new Subtree(new FlatConstraints(view, variables)), 0, new Cancellation());
+        Future<MineCounts> result = pool.submit(root);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            root.cancellation.cancelled = true;
+            result.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Parallel";
+    }
+
+    private static class Cancellation {
+        volatile boolean cancelled = false;
+    }
+
+    private interface CancelCheck {
+        boolean isCancelled();
+    }
+
+    private class CountTask extends RecursiveTask<MineCounts> {
+        private static final long serialVersionUID = 1L;
+
+        final Subtree subtree;
+        final int index;
+        final Cancellation cancellation;
+
+        CountTask(Subtree subtree, int index, Cancellation cancellation) {
+            this.subtree = subtree;
+            this.index = index;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        protected MineCounts compute() {
+            int numVariables = subtree.isMine.length;
+            MineCounts counts = new MineCounts(numVariables);
+            if (index >= splitDepth || index == numVariables) {
+                subtree.backtrack(index, counts::add, () -> cancellation.cancelled);
+                return counts;
+            }
+
+            List<CountTask> children = new ArrayList<>(2);
+            for (int thisIsMine = 0; thisIsMine <= 1; thisIsMine++) {
+                Subtree child = new Subtree(subtree);
+                if (child.assign(index, thisIsMine)) {
+                    children.add(new CountTask(child, index + 1, cancellation));
+                }
+            }
+            for (CountTask child : invokeAll(children)) {
+                counts.add(child.join());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * The search state under one branch: the same as BackTrackAI's, but owned by a single task.
+     */
+    private static class Subtree {
+        final FlatConstraints constraints;
+        final int[] minesNeeded;
+        final int[] variablesLeft;
+        final boolean[] isMine;
+        int nodes = 0;
+
+        Subtree(FlatConstraints constraints) {
+            this.constraints = constraints;
+            this.minesNeeded = constraints.minesNeeded.clone();
+            this.variablesLeft = constraints.numVariablesOf.clone();
+            this.isMine = new boolean[constraints.numVariables];
+        }
+
+        Subtree(Subtree parent) {
+            this.constraints = parent.constraints;
+            this.minesNeeded = parent.minesNeeded.clone();
+            this.variablesLeft = parent.variablesLeft.clone();
+            this.isMine = parent.isMine.clone();
+        }
+
+        /**
+         * Assigns a variable and updates its constraints.
+         *
+         * @return false if a constraint can no longer be satisfied. The assignment is still applied.
+         */
+        boolean assign(int index, int thisIsMine) {
+            boolean valid = true;
+            for (int i = constraints.constraintsOfVariableStart[index];
+                 i < constraints.constraintsOfVariableStart[index + 1]; i++) {
+                int c = constraints.constraintsOfVariable[i];
+                minesNeeded[c] -= thisIsMine;
+                variablesLeft[c]--;
+                if (minesNeeded[c] < 0 || variablesLeft[c] < minesNeeded[c]) {
+                    valid = false;
+                }
+            }
+            isMine[index] = thisIsMine == 1;
+            return valid;
+        }
+
+        void unassign(int index, int thisIsMine) {
+            for (int i = constraints.constraintsOfVariableStart[index];
+                 i < constraints.constraintsOfVariableStart[index + 1]; i++) {
+                int c = constraints.constraintsOfVariable[i];
+                minesNeeded[c] += thisIsMine;
+                variablesLeft[c]++;
+            }
+        }
+
+        /**
+         * Backtracks every variable from index onwards.
+         *
+         * @throws CancellationException if the search is cancelled part way.
+         */
+        long backtrack(int index, Consumer<boolean[]> onSolutionFound, CancelCheck cancelCheck) {
+            if (++nodes % NODES_PER_CANCEL_CHECK == 0 && cancelCheck.isCancelled()) {
+                throw new CancellationException();
+            }
+            if (index == isMine.length) {
+                onSolutionFound.accept(isMine);
+                return 1;
+            }
+
+            long nSolutions = 0;
+            for (int thisIsMine = 0; thisIsMine <= 1; thisIsMine++) {
+                if (assign(index, thisIsMine)) {
+                    nSolutions += backtrack(index + 1, onSolutionFound, cancelCheck);
+                }
+                unassign(index, thisIsMine);
+            }
+            return nSolutions;
+        }
+    }
+}
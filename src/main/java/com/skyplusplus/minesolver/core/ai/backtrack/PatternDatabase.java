@@ -0,0 +1,370 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI.GroupResult;
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI.GroupResultEntry;
+import com.skyplusplus.minesolver.core.gamelogic.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Results for small groups that keep showing up, like 1-2-1 lines, corners and little pockets.
+ *
+ * Whether a group's squares are mines only depends on where its squares and constraining numbers are relative to each
+ * other, so a group is stored under a canonical pattern: its squares and effective numbers (number minus neighbouring
+ * flags) translated to the origin, and picked as the smallest encoding among all 4 rotations and their reflections.
+ *
+ * The database is generated offline by {@link #main(String[])} and saved as a flat file of ints, which is memory
+ * mapped when loaded. Only an index of pattern to file offset is kept on the heap.
+ *
+ * No database ships with the solver, and the build doesn't generate one, so using it is opt-in: the default database
+ * is empty, and lookups in it return straight away, unless the {@value DEFAULT_PATH_PROPERTY} system property names a
+ * generated file.
+ *
+ * File format, all big-endian ints:
+ * MAGIC, VERSION, number of patterns, then for each pattern:
+ * key length, key..., number of squares (n), then for each mine count 0..n: total solutions, n per-square counts.
+ */
+public class PatternDatabase {
+
+    public static final int MAX_PATTERN_SQUARES = 12;
+    public static final String DEFAULT_PATH_PROPERTY = "minesolver.patterns";
+
+    private static final int MAGIC = 0x4D535044;
+    private static final int VERSION = 1;
+    private static final int SQUARE = 9;
+
+    private static final Logger LOGGER = Logger.getLogger(PatternDatabase.class.getName());
+    private static PatternDatabase defaultDatabase;
+
+    private final Map<GroupResultCache.Key, int[]> recorded = new HashMap<>();
+    private final Map<GroupResultCache.Key, Integer> mappedOffsets = new HashMap<>();
+    private final IntBuffer mapped;
+    // Databases are shared by AIs on different threads, so lookups may be counted from several at once.
+    private final AtomicLong hits = new AtomicLong();
+
+    public PatternDatabase() {
+        this.mapped = null;
+    }
+
+    private PatternDatabase(IntBuffer mapped) {
+        this.mapped = mapped;
+    }
+
+    /**
+     * Gets the database found at the path given by the {@value DEFAULT_PATH_PROPERTY} system property, or an empty one
+     * if the property isn't set or the file can't be loaded. Loaded once, on first use.
+     */
+    public static synchronized PatternDatabase getDefault() {
+        if (defaultDatabase == null) {
+            String path = System.getProperty(DEFAULT_PATH_PROPERTY);
+            defaultDatabase = new PatternDatabase();
+            if (path != null) {
+                try {
+                    defaultDatabase = load(Paths.get(path));
+                } catch (IOException | IllegalArgumentException e) {
+                    LOGGER.warning("Not using pattern database " + path + ": " + e);
+                }
+            }
+        }
+        return defaultDatabase;
+    }
+
+    public static PatternDatabase load(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        IntBuffer ints = buffer.asIntBuffer();
+        if (ints.remaining() < 3 || ints.get(0) != MAGIC || ints.get(1) != VERSION) {
+            throw new IllegalArgumentException("Not a pattern database: " + path);
+        }
+
+        PatternDatabase retVal = new PatternDatabase(ints);
+        int numPatterns = ints.get(2);
+        int offset = 3;
+        for (int p = 0; p < numPatterns; p++) {
+            int[] key = new int[ints.get(offset++)];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = ints.get(offset++);
+            }
+            retVal.mappedOffsets.put(new GroupResultCache.Key(key), offset);
+            int numSquares = ints.get(offset);
+            offset += 1 + (numSquares + 1) * (numSquares + 1);
+        }
+        return retVal;
+    }
+
+    public void save(Path path) throws IOException {
+        Map<GroupResultCache.Key, int[]> all = new LinkedHashMap<>();
+        for (Map.Entry<GroupResultCache.Key, Integer> entry : mappedOffsets.entrySet()) {
+            int numSquares = mapped.get(entry.getValue());
+            int[] data = new int[1 + (numSquares + 1) * (numSquares + 1)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = mapped.get(entry.getValue() + i);
+            }
+            all.put(entry.getKey(), data);
+        }
+        all.putAll(recorded);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(all.size());
+            for (Map.Entry<GroupResultCache.Key, int[]> entry : all.entrySet()) {
+                out.writeInt(entry.getKey().data.length);
+                for (int i : entry.getKey().data) {
+                    out.writeInt(i);
+                }
+                for (int i : entry.getValue()) {
+                    out.writeInt(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the result of a group by its pattern.
+     *
+     * @return the result with squares in the same order as the group, or null if the pattern isn't known.
+     */
+    public GroupResult lookup(PlayerView view, List<BoardCoord> group) {
+        if (size() == 0) {
+            return null;
+        }
+        Pattern pattern = Pattern.of(view, group);
+        if (pattern == null) {
+            return null;
+        }
+
+        int[] data = recorded.get(pattern.key);
+        int offset = 0;
+        IntBuffer source = null;
+        if (data == null) {
+            Integer mappedOffset = mappedOffsets.get(pattern.key);
+            if (mappedOffset == null) {
+                return null;
+            }
+            source = mapped;
+            offset = mappedOffset;
+        }
+
+        int numSquares = group.size();
+        Map<BoardCoord, Integer> canonicalIndex = pattern.canonicalIndex();
+        GroupResult retVal = new GroupResult(group);
+        for (int mineCount = 0; mineCount <= numSquares; mineCount++) {
+            int base = offset + 1 + mineCount * (numSquares + 1);
+            GroupResultEntry entry = new GroupResultEntry(
+                    BigDecimal.valueOf(source == null ? data[base] : source.get(base)));
+            for (BoardCoord square : group) {
+                int index = base + 1 + canonicalIndex.get(square);
+                entry.squareResults.add(BigDecimal.valueOf(source == null ? data[index] : source.get(index)));
+            }
+            retVal.addGroupResultEntry(entry);
+        }
+        hits.incrementAndGet();
+        return retVal;
+    }
+
+    /**
+     * Adds the result of a solved group, if it is small enough to be a pattern.
+     */
+    public void record(PlayerView view, GroupResult result) {
+        Pattern pattern = Pattern.of(view, result.boardCoords);
+        if (pattern == null || mappedOffsets.containsKey(pattern.key)) {
+            return;
+        }
+
+        int numSquares = result.boardCoords.size();
+        Map<BoardCoord, Integer> canonicalIndex = pattern.canonicalIndex();
+        int[] data = new int[1 + (numSquares + 1) * (numSquares + 1)];
+        data[0] = numSquares;
+        for (int mineCount = 0; mineCount <= numSquares; mineCount++) {
+            int base = 1 + mineCount * (numSquares + 1);
+            GroupResultEntry entry = result.groupResults.get(mineCount);
+            data[base] = entry.totalSolutions.intValueExact();
+            for (int i = 0; i < numSquares; i++) {
+                data[base + 1 + canonicalIndex.get(result.boardCoords.get(i))] =
+                        entry.squareResults.get(i).intValueExact();
+            }
+        }
+        recorded.put(pattern.key, data);
+    }
+
+    public boolean contains(PlayerView view, List<BoardCoord> group) {
+        Pattern pattern = Pattern.of(view, group);
+        return pattern != null && (recorded.containsKey(pattern.key) || mappedOffsets.containsKey(pattern.key));
+    }
+
+    public int size() {
+        return recorded.size() + mappedOffsets.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * A group normalized up to translation, rotation and reflection.
+     */
+    private static class Pattern {
+        final GroupResultCache.Key key;
+        // Squares of the group in the order they appear in the key.
+        final List<BoardCoord> squares;
+
+        private Pattern(GroupResultCache.Key key, List<BoardCoord> squares) {
+            this.key = key;
+            this.squares = squares;
+        }
+
+        Map<BoardCoord, Integer> canonicalIndex() {
+            Map<BoardCoord, Integer> retVal = new HashMap<>();
+            for (int i = 0; i < squares.size(); i++) {
+                retVal.put(squares.get(i), i);
+            }
+            return retVal;
+        }
+
+        static Pattern of(PlayerView view, List<BoardCoord> group) {
+            if (group.isEmpty() || group.size() > MAX_PATTERN_SQUARES) {
+                return null;
+            }
+
+            Set<BoardCoord> numbers = new LinkedHashSet<>();
+            for (BoardCoord square : group) {
+                numbers.addAll(view.getNeighbours(square, SquareState.PROBED));
+            }
+
+            // Each point is x, y, and either SQUARE or the effective number.
+            List<BoardCoord> points = new ArrayList<>(group);
+            points.addAll(numbers);
+            int[] type = new int[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                if (i < group.size()) {
+                    type[i] = SQUARE;
+                } else {
+                    BoardCoord number = points.get(i);
+                    type[i] = view.getSquareMineCount(number)
+                            - view.countNeighbours(number, SquareState.FLAGGED);
+                }
+            }
+
+            int[] best = null;
+            Integer[] bestOrder = null;
+            for (int transform = 0; transform < 8; transform++) {
+                int[] xs = new int[points.size()];
+                int[] ys = new int[points.size()];
+                int minX = Integer.MAX_VALUE;
+                int minY = Integer.MAX_VALUE;
+                for (int i = 0; i < points.size(); i++) {
+                    int x = points.get(i).getX();
+                    int y = points.get(i).getY();
+                    if ((transform & 4) != 0) {
+                        int t = x;
+                        x = y;
+                        y = t;
+                    }
+                    xs[i] = (transform & 1) != 0 ? -x : x;
+                    ys[i] = (transform & 2) != 0 ? -y : y;
+                    minX = Math.min(minX, xs[i]);
+                    minY = Math.min(minY, ys[i]);
+                }
+
+                Integer[] order = new Integer[points.size()];
+                for (int i = 0; i < order.length; i++) {
+                    xs[i] -= minX;
+                    ys[i] -= minY;
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.<Integer>comparingInt(i -> ys[i]).thenComparingInt(i -> xs[i]));
+
+                int[] encoding = new int[points.size() * 3];
+                for (int i = 0; i < order.length; i++) {
+                    encoding[i * 3] = xs[order[i]];
+                    encoding[i * 3 + 1] = ys[order[i]];
+                    encoding[i * 3 + 2] = type[order[i]];
+                }
+                if (best == null || compare(encoding, best) < 0) {
+                    best = encoding;
+                    bestOrder = order;
+                }
+            }
+
+            List<BoardCoord> squares = new ArrayList<>();
+            for (Integer i : bestOrder) {
+                if (i < group.size()) {
+                    squares.add(points.get(i));
+                }
+            }
+            return new Pattern(new GroupResultCache.Key(best), squares);
+        }
+
+        private static int compare(int[] a, int[] b) {
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    return Integer.compare(a[i], b[i]);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Generates a pattern database by playing random games and solving every small group seen along the way.
+     *
+     * Usage: PatternDatabase output-file [games] [width] [height] [mines]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: PatternDatabase output-file [games] [width] [height] [mines]");
+            return;
+        }
+        Path output = Paths.get(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int height = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int mines = args.length > 4 ? Integer.parseInt(args[4]) : 99;
+
+        PatternDatabase database = Files.isRegularFile(output) ? load(output) : new PatternDatabase();
+        BackTrackComboAI solver = new BackTrackComboAI();
+        solver.setPatternDatabase(new PatternDatabase());
+
+        for (int game = 0; game < games; game++) {
+            MineSweeper mineSweeper = new MineSweeper(width, height, mines);
+            while (mineSweeper.getGameState() == GameState.IN_PROGRESS) {
+                PlayerView view = mineSweeper.clonePlayerState();
+                for (List<BoardCoord> group : BackTrackComboAI.getGroupsOfBorders(view)) {
+                    if (group.size() <= MAX_PATTERN_SQUARES && !database.contains(view, group)) {
+                        database.record(view, solver.processGroups(view, Collections.singletonList(group)).get(0));
+                    }
+                }
+
+                Move move = solver.calculate(view);
+                boolean didMove = false;
+                for (BoardCoord coord : move.getToFlag()) {
+                    didMove |= mineSweeper.flag(coord) != FlagResult.NOP;
+                }
+                for (BoardCoord coord : move.getToProbe()) {
+                    didMove |= mineSweeper.probe(coord) != ProbeResult.NOP;
+                }
+                if (!didMove) {
+                    break;
+                }
+            }
+            System.out.println("Game " + (game + 1) + " of " + games + ": " + database.size() + " patterns");
+        }
+
+        database.save(output);
+    }
+}
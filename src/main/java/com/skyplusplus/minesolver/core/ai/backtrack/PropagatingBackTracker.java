@@ -0,0 +1,105 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A DPLL style backtracker. Rather than branching on every square in a fixed order, it:
+ *
+ * 1. Propagates: each number counts the mines it still needs and its unassigned squares. Once a number needs no more
+ * mines, the rest of its squares are safe. Once it needs as many mines as it has squares left, they are all mines.
+ * 2. Branches on the most constrained square: one belonging to the number with the fewest unassigned squares left.
+ * 3. Undoes assignments with a trail instead of copying state.
+ *
+ * Whole subtrees that the plain backtracker would explore one square at a time are settled by propagation, and
+ * conflicts are found as soon as they are implied.
+ */
+public class PropagatingBackTracker implements MineCombinationFinder {
+
+    private static final int NODES_PER_INTERRUPT_CHECK = 1 << 12;
+
+    @Override
+    public int findCombinationsOfMines(
+            PlayerView view,
+            List<BoardCoord> variables,
+            Consumer<boolean[]> onSolutionFound
+    ) throws InterruptedException {
+        Search search = new Search(view, variables, onSolutionFound);
+        if (!search.propagateAll()) {
+            return 0;
+        }
+        return search.search();
+    }
+
+    @Override
+    public String toString() {
+        return "Propagating";
+    }
+
+    private static class Search extends Propagator {
+        final boolean[] isMine;
+        final Consumer<boolean[]> onSolutionFound;
+        int nodes = 0;
+
+        Search(PlayerView view, List<BoardCoord> variables, Consumer<boolean[]> onSolutionFound) {
+            super(new FlatConstraints(view, variables));
+            isMine = new boolean[numVariables];
+            this.onSolutionFound = onSolutionFound;
+        }
+
+        int search() throws InterruptedException {
+            if (++nodes % NODES_PER_INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            int variable = pickVariable();
+            if (variable == UNASSIGNED) {
+                for (int v = 0; v < numVariables; v++) {
+                    isMine[v] = value[v] == 1;
+                }
+                onSolutionFound.accept(isMine);
+                return 1;
+            }
+
+            int nSolutions = 0;
+            int mark = trailSize;
+            for (int thisIsMine = 0; thisIsMine <= 1; thisIsMine++) {
+                if (assign(variable, thisIsMine) && propagate(mark)) {
+                    nSolutions += search();
+                }
+                undo(mark);
+            }
+            return nSolutions;
+        }
+
+        /**
+         * Most constrained variable: an unassigned variable of the open constraint with the fewest variables left.
+         * Falls back to any unassigned variable, for variables not next to any open constraint.
+         */
+        private int pickVariable() {
+            int bestConstraint = -1;
+            for (int c = 0; c < numConstraints; c++) {
+                if (variablesLeft[c] > 0 && (bestConstraint == -1 || variablesLeft[c] < variablesLeft[bestConstraint])) {
+                    bestConstraint = c;
+                }
+            }
+            if (bestConstraint != -1) {
+                for (int i = variablesOfConstraintStart[bestConstraint];
+                     i < variablesOfConstraintStart[bestConstraint + 1]; i++) {
+                    if (value[variablesOfConstraint[i]] == UNASSIGNED) {
+                        return variablesOfConstraint[i];
+                    }
+                }
+            }
+            for (int v = 0; v < numVariables; v++) {
+                if (value[v] == UNASSIGNED) {
+                    return v;
+                }
+            }
+            return UNASSIGNED;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import java.util.Arrays;
+
+/**
+ * Search state shared by the propagating engines: each number counts the mines it still needs and its unassigned
+ * squares, and a number that is decided forces the rest of its squares. Assignments are recorded on a trail, so they
+ * can be undone back to any earlier point.
+ */
+class Propagator {
+    static final int UNASSIGNED = -1;
+
+    final int numVariables;
+    final int numConstraints;
+    final int[] constraintsOfVariableStart;
+    final int[] constraintsOfVariable;
+    final int[] variablesOfConstraintStart;
+    final int[] variablesOfConstraint;
+
+    final int[] value;
+    final int[] minesNeeded;
+    final int[] variablesLeft;
+    final int[] trail;
+    int trailSize = 0;
+
+    Propagator(FlatConstraints constraints) {
+        numVariables = constraints.numVariables;
+        numConstraints = constraints.numConstraints;
+        constraintsOfVariableStart = constraints.constraintsOfVariableStart;
+        constraintsOfVariable = constraints.constraintsOfVariable;
+        variablesOfConstraintStart = constraints.variablesOfConstraintStart;
+        variablesOfConstraint = constraints.variablesOfConstraint;
+        minesNeeded = constraints.minesNeeded.clone();
+        variablesLeft = constraints.numVariablesOf.clone();
+
+        value = new int[numVariables];
+        Arrays.fill(value, UNASSIGNED);
+        trail = new int[numVariables];
+    }
+
+    /**
+     * Checks and propagates every constraint, before any branching.
+     */
+    boolean propagateAll() {
+        for (int c = 0; c < numConstraints; c++) {
+            if (minesNeeded[c] < 0 || variablesLeft[c] < minesNeeded[c]) {
+                return false;
+            }
+            if (!forceIfDecided(c)) {
+                return false;
+            }
+        }
+        return propagate(0);
+    }
+
+    /**
+     * Assigns a variable and updates its constraints.
+     *
+     * @return false if a constraint can no longer be satisfied. The assignment is still recorded on the trail.
+     */
+    boolean assign(int variable, int thisIsMine) {
+        value[variable] = thisIsMine;
+        trail[trailSize++] = variable;
+        boolean valid = true;
+        for (int i = constraintsOfVariableStart[variable]; i < constraintsOfVariableStart[variable + 1]; i++) {
+            int c = constraintsOfVariable[i];
+            minesNeeded[c] -= thisIsMine;
+            variablesLeft[c]--;
+            if (minesNeeded[c] < 0 || variablesLeft[c] < minesNeeded[c]) {
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Goes through the trail from head, forcing the rest of any constraint that has been decided.
+     */
+    boolean propagate(int head) {
+        while (head < trailSize) {
+            int variable = trail[head++];
+            for (int i = constraintsOfVariableStart[variable]; i < constraintsOfVariableStart[variable + 1]; i++) {
+                if (!forceIfDecided(constraintsOfVariable[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    boolean forceIfDecided(int c) {
+        if (variablesLeft[c] == 0 || (minesNeeded[c] != 0 && minesNeeded[c] != variablesLeft[c])) {
+            return true;
+        }
+        int forced = minesNeeded[c] == 0 ? 0 : 1;
+        for (int i = variablesOfConstraintStart[c]; i < variablesOfConstraintStart[c + 1]; i++) {
+            int v = variablesOfConstraint[i];
+            if (value[v] == UNASSIGNED && !assign(v, forced)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void undo(int mark) {
+        while (trailSize > mark) {
+            int variable = trail[--trailSize];
+            int thisIsMine = value[variable];
+            for (int i = constraintsOfVariableStart[variable]; i < constraintsOfVariableStart[variable + 1]; i++) {
+                int c = constraintsOfVariable[i];
+                minesNeeded[c] += thisIsMine;
+                variablesLeft[c]++;
+            }
+            value[variable] = UNASSIGNED;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import com.skyplusplus.minesolver.core.ai.BoardUpdate;
+import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.UpdateHandler;
+import com.skyplusplus.minesolver.core.ai.frontier.FrontierAI;
+import com.skyplusplus.minesolver.core.ai.simple.LocalPatternAI;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Races the cheap AIs against the expensive one instead of running them one after another. Each gets its own thread,
+ * all reading the same view. The first cheap AI to find certain moves wins; if none of them do, the expensive one's
+ * move is used.
+ *
+ * When a cheap AI wins, the expensive one is left running. If the next call is for the same board, its result is used
+ * without starting again, so an autoplay that makes no progress waits for at most what is left of the frontier run.
+ * If the board has moved on since, the run is interrupted if it is still going, and the certain moves it found on
+ * squares that have not changed since are used instead of racing again. A square that was certain stays certain when
+ * more of the board is shown, so these only need the cheap move's squares taken out.
+ *
+ * Each AI is only ever running once: losers are stopped and waited for before their AI is started again. The
+ * expensive one stops at its next interrupt check, which can take up to its progress reporting interval.
+ */
+public class RacingAI extends MineSweeperAI {
+
+    private final MineSweeperAI expensiveAI;
+    private final MineSweeperAI[] cheapAIs;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Racing AI");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object handlerLock = new Object();
+    private final Set<BoardCoord> reportedToProbe = new LinkedHashSet<>();
+    private final Set<BoardCoord> reportedToFlag = new LinkedHashSet<>();
+    private boolean racing = false;
+
+    private Run pending = null;
+    private long pendingLineage;
+    private int pendingRevision;
+
+    private int racesWonByCheap = 0;
+    private int racesWonByExpensive = 0;
+    private int reusedResults = 0;
+
+    public RacingAI() {
+        this(new FrontierAI(), new SimpleAI(false), new LocalPatternAI());
+    }
+
+    /**
+     * @param expensiveAI AI to fall back to. Its move is used whenever the cheap ones find nothing.
+     * @param cheapAIs    AIs that only report certain moves.
+     */
+    public RacingAI(MineSweeperAI expensiveAI, MineSweeperAI... cheapAIs) {
+        this.expensiveAI = expensiveAI;
+        this.cheapAIs = cheapAIs.clone();
+    }
+
+    @Override
+    public Move calculate(PlayerView view) {
+        Move move;
+        try {
+            move = race(view);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reportProgressImmediate(new BoardUpdate(null, "Processing was interrupted"));
+            return new Move(null, null);
+        } finally {
+            synchronized (handlerLock) {
+                racing = false;
+            }
+        }
+
+        // Everything reported along the way was certain, including what the losers found before they were stopped.
+        synchronized (handlerLock) {
+            if (reportedToProbe.isEmpty() && reportedToFlag.isEmpty()) {
+                return move;
+            }
+            reportedToProbe.addAll(move.getToProbe());
+            reportedToFlag.addAll(move.getToFlag());
+            return new Move(new ArrayList<>(reportedToProbe), new ArrayList<>(reportedToFlag));
+        }
+    }
+
+    private Move race(PlayerView view) throws InterruptedException {
+        Run expensive = null;
+        Move stillCertain = null;
+        if (pending != null) {
+            if (view.getLineage() == pendingLineage && view.getRevision() == pendingRevision) {
+                expensive = pending;
+            } else {
+                pending.cancel();
+                pending.awaitDone();
+                stillCertain = getStillCertain(pending, view);
+            }
+            pending = null;
+        }
+        // Only now is nothing left running on another board, so nothing it found can end up in this move.
+        synchronized (handlerLock) {
+            reportedToProbe.clear();
+            reportedToFlag.clear();
+            racing = true;
+        }
+
+        if (stillCertain != null) {
+            reusedResults++;
+            return stillCertain;
+        }
+        if (expensive != null) {
+            reusedResults++;
+            try {
+                expensive.awaitDone();
+            } catch (InterruptedException e) {
+                expensive.cancel();
+                expensive.awaitDone();
+                throw e;
+            }
+            racesWonByExpensive++;
+            return expensive.getResult();
+        }
+
+        BlockingQueue<Run> finished = new LinkedBlockingQueue<>();
+        List<Run> cheapRuns = new ArrayList<>();
+        for (MineSweeperAI ai : cheapAIs) {
+            cheapRuns.add(start(ai, view, finished));
+        }
+        // The expensive AI may outlive this call, so it gets a view of its own.
+        expensive = start(expensiveAI, view.copy(), finished);
+
+        Move move = null;
+        boolean cheapWon = false;
+        try {
+            int cheapLeft = cheapRuns.size();
+            while (move == null) {
+                Run run = finished.take();
+                if (run == expensive) {
+                    move = run.getResult();
+                    racesWonByExpensive++;
+                } else {
+                    cheapLeft--;
+                    Move cheapMove = run.failure == null ? run.result : null;
+                    if (cheapMove != null && (!cheapMove.getToProbe().isEmpty() || !cheapMove.getToFlag().isEmpty())) {
+                        move = cheapMove;
+                        cheapWon = true;
+                        racesWonByCheap++;
+                    } else if (cheapLeft == 0) {
+                        reportProgressImmediate(new BoardUpdate(null, "Waiting for " + expensiveAI));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            expensive.cancel();
+            stopAll(cheapRuns);
+            expensive.awaitDone();
+            throw e;
+        }
+
+        stopAll(cheapRuns);
+        if (cheapWon) {
+            pending = expensive;
+            pendingLineage = view.getLineage();
+            pendingRevision = view.getRevision();
+        }
+        return move;
+    }
+
+    /**
+     * The certain moves a left over run found, less those on squares changed since the board it was given.
+     *
+     * @return the moves, or null if there are none or the view is not a later revision of that board.
+     */
+    private Move getStillCertain(Run run, PlayerView view) {
+        if (run.failure != null
+                || view.getLineage() != pendingLineage
+                || view.getRevision() < pendingRevision
+                || pendingRevision < view.getOldestRevision()) {
+            return null;
+        }
+
+        Set<BoardCoord> changed = new HashSet<>(view.getChangesSince(pendingRevision));
+        List<BoardCoord> toProbe = new ArrayList<>();
+        List<BoardCoord> toFlag = new ArrayList<>();
+        synchronized (handlerLock) {
+            for (BoardCoord coord : run.certainToProbe) {
+                if (!changed.contains(coord)) {
+                    toProbe.add(coord);
+                }
+            }
+            for (BoardCoord coord : run.certainToFlag) {
+                if (!changed.contains(coord)) {
+                    toFlag.add(coord);
+                }
+            }
+        }
+        if (toProbe.isEmpty() && toFlag.isEmpty()) {
+            return null;
+        }
+        return new Move(toProbe, toFlag);
+    }
+
+    private Run start(MineSweeperAI ai, PlayerView view, BlockingQueue<Run> finished) {
+        Run run = new Run(ai, view, finished);
+        executor.execute(run);
+        return run;
+    }
+
+    private static void stopAll(List<Run> runs) throws InterruptedException {
+        for (Run run : runs) {
+            run.cancel();
+        }
+        for (Run run : runs) {
+            run.awaitDone();
+        }
+    }
+
+    private void forwardProgress(BoardUpdate update) {
+        synchronized (handlerLock) {
+            if (racing) {
+                reportProgressImmediate(update);
+            }
+        }
+    }
+
+    // Checked under the lock: a run checking first could be held up until the next call has cleared the sets.
+    private void forwardCertainMove(Run run, Move move) {
+        synchronized (handlerLock) {
+            // Kept after the race too, for the next call to reuse.
+            run.certainToProbe.addAll(move.getToProbe());
+            run.certainToFlag.addAll(move.getToFlag());
+            if (racing) {
+                reportedToProbe.addAll(move.getToProbe());
+                reportedToFlag.addAll(move.getToFlag());
+                reportCertainMove(move);
+            }
+        }
+    }
+
+    public int getRacesWonByCheap() {
+        return racesWonByCheap;
+    }
+
+    public int getRacesWonByExpensive() {
+        return racesWonByExpensive;
+    }
+
+    /**
+     * Number of times a left over expensive run was used instead of starting a new one.
+     */
+    public int getReusedResults() {
+        return reusedResults;
+    }
+
+    @Override
+    public String toString() {
+        return "Frontier & Simple Race";
+    }
+
+    /**
+     * One AI working on one view. Unlike a plain Future, this can be waited on after being cancelled, to know when
+     * the AI is free again.
+     */
+    private final class Run implements Runnable {
+        private final MineSweeperAI ai;
+        private final PlayerView view;
+        private final BlockingQueue<Run> finished;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Thread runner = null;
+        private boolean cancelled = false;
+        private volatile Move result = null;
+        private volatile RuntimeException failure = null;
+        // Guarded by handlerLock.
+        private final Set<BoardCoord> certainToProbe = new LinkedHashSet<>();
+        private final Set<BoardCoord> certainToFlag = new LinkedHashSet<>();
+
+        Run(MineSweeperAI ai, PlayerView view, BlockingQueue<Run> finished) {
+            this.ai = ai;
+            this.view = view;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    done.countDown();
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                UpdateHandler<BoardUpdate> progress = RacingAI.this::forwardProgress;
+                UpdateHandler<Move> certain = move -> forwardCertainMove(this, move);
+                result = ai.calculate(view, progress, certain);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // Don't hand a pooled thread back still interrupted.
+                    Thread.interrupted();
+                }
+                done.countDown();
+                finished.add(this);
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        void awaitDone() throws InterruptedException {
+            done.await();
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        Move getResult() {
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.skyplusplus.minesolver.core.ai.backtrack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Decides which tiers of a tiered AI to run for each move, from how each tier has done so far.
+ *
+ * Tiers are tried cheapest first, and the last one always runs if none of the others found a move. Each tier keeps a
+ * running average of its cost, how often it finds moves, and how many it finds when it does. A cheap tier is tried if
+ * doing so is expected to give more moves per second than going straight to the last tier:
+ *
+ *     (hitRate * moves + (1 - hitRate) * lastMoves) / (cost + (1 - hitRate) * lastCost) >= lastMoves / lastCost
+ *
+ * A tier that keeps being skipped is tried again every so often anyway, so its statistics follow the game as it
+ * changes.
+ */
+public class TierScheduler {
+
+    public static final int MAX_DECISIONS_LOGGED = 1000;
+    static final int EXPLORE_INTERVAL = 16;
+    private static final double SMOOTHING = 0.2;
+
+    private final List<Tier> tiers = new ArrayList<>();
+    private final Deque<Decision> decisionLog = new ArrayDeque<>();
+    private int moveNumber = 0;
+
+    /**
+     * @param tierNames names of the tiers, cheapest first. The last tier is the one to fall back to.
+     */
+    public TierScheduler(String... tierNames) {
+        if (tierNames.length == 0) {
+            throw new IllegalArgumentException("Need at least one tier");
+        }
+        for (String name : tierNames) {
+            tiers.add(new Tier(name));
+        }
+    }
+
+    /**
+     * Marks the start of deciding a new move.
+     */
+    public void startMove() {
+        moveNumber++;
+    }
+
+    /**
+     * Whether the tier is worth trying for this move. Always true for the last tier.
+     */
+    public boolean shouldRun(int tierIndex) {
+        Tier tier = tiers.get(tierIndex);
+        Tier last = tiers.get(tiers.size() - 1);
+        String reason;
+        boolean run;
+        if (tier == last) {
+            run = true;
+            reason = "fallback";
+        } else if (tier.calls == 0 || last.calls == 0) {
+            run = true;
+            reason = "no history";
+        } else if (tier.skippedInARow >= EXPLORE_INTERVAL) {
+            run = true;
+            reason = "re-checking after " + tier.skippedInARow + " skips";
+        } else {
+            double withTier = (tier.hitRate * tier.movesPerHit + (1 - tier.hitRate) * last.movesPerHit)
+                    / (tier.averageNanos + (1 - tier.hitRate) * last.averageNanos);
+            double withoutTier = last.movesPerHit / last.averageNanos;
+            run = withTier >= withoutTier;
+            reason = String.format("%.3g vs %.3g moves/ms", withTier * 1e6, withoutTier * 1e6);
+        }
+
+        if (run) {
+            tier.skippedInARow = 0;
+        } else {
+            tier.skippedInARow++;
+            log(new Decision(moveNumber, tier.name, false, 0, 0, reason));
+        }
+        tier.lastReason = reason;
+        return run;
+    }
+
+    /**
+     * Records how a tier did.
+     *
+     * @param movesFound number of squares to probe or flag it came up with.
+     */
+    public void record(int tierIndex, long nanos, int movesFound) {
+        Tier tier = tiers.get(tierIndex);
+        boolean hit = movesFound > 0;
+        if (tier.calls == 0) {
+            tier.averageNanos = nanos;
+            tier.hitRate = hit ? 1 : 0;
+        } else {
+            tier.averageNanos += SMOOTHING * (nanos - tier.averageNanos);
+            tier.hitRate += SMOOTHING * ((hit ? 1 : 0) - tier.hitRate);
+        }
+        if (hit) {
+            tier.movesPerHit = tier.hits == 0 ? movesFound : tier.movesPerHit + SMOOTHING * (movesFound - tier.movesPerHit);
+            tier.hits++;
+        }
+        tier.calls++;
+        log(new Decision(moveNumber, tier.name, true, nanos, movesFound, tier.lastReason));
+    }
+
+    private void log(Decision decision) {
+        if (decisionLog.size() == MAX_DECISIONS_LOGGED) {
+            decisionLog.removeFirst();
+        }
+        decisionLog.addLast(decision);
+    }
+
+    /**
+     * The most recent decisions, oldest first.
+     */
+    public List<Decision> getDecisionLog() {
+        return Collections.unmodifiableList(new ArrayList<>(decisionLog));
+    }
+
+    public List<Tier> getTiers() {
+        return Collections.unmodifiableList(tiers);
+    }
+
+    public static class Tier {
+        private final String name;
+        private int calls = 0;
+        private int hits = 0;
+        private int skippedInARow = 0;
+        private double hitRate = 0;
+        private double averageNanos = 0;
+        private double movesPerHit = 1;
+        private String lastReason = "";
+
+        Tier(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public int getHits() {
+            return hits;
+        }
+
+        /**
+         * Fraction of all calls so far that found moves.
+         */
+        public double getOverallHitRate() {
+            return calls == 0 ? 0 : (double) hits / calls;
+        }
+
+        /**
+         * Recent hit rate, as used for scheduling.
+         */
+        public double getHitRate() {
+            return hitRate;
+        }
+
+        public double getAverageNanos() {
+            return averageNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d/%d hits, %.2fms", name, hits, calls, averageNanos / 1e6);
+        }
+    }
+
+    public static class Decision {
+        public final int moveNumber;
+        public final String tier;
+        public final boolean ran;
+        public final long nanos;
+        public final int movesFound;
+        public final String reason;
+
+        Decision(int moveNumber, String tier, boolean ran, long nanos, int movesFound, String reason) {
+            this.moveNumber = moveNumber;
+            this.tier = tier;
+            this.ran = ran;
+            this.nanos = nanos;
+            this.movesFound = movesFound;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            if (!ran) {
+                return "#" + moveNumber + " skipped " + tier + " (" + reason + ")";
+            }
+            return String.format("#%d ran %s (%s): %d moves in %.2fms", moveNumber, tier, reason, movesFound, nanos / 1e6);
+        }
+    }
+}
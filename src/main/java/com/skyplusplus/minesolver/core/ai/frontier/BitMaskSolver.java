@@ -0,0 +1,126 @@
+package com.skyplusplus.minesolver.core.ai.frontier;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brute force solver for constraint equations over a handful of variables, in the same form as {@link CSPSolver}.
+ *
+ * An assignment is a bitmask, with bit i set if variable i is true. Every assignment is visited in Gray code order, so
+ * each step flips a single variable and only the rules containing it need updating. Each rule keeps its count of true
+ * variables, and the number of rules currently unsatisfied is tracked, so telling whether an assignment is a solution
+ * takes no work at all. For solutions, the counts of the set bits are incremented.
+ *
+ * This is 2^N steps regardless of the rules, so it is only for small N. For those it beats the frontier DP, which
+ * spends most of its time on A* and hash maps.
+ */
+public class BitMaskSolver {
+
+    public static final int MAX_VARIABLES = 32;
+    private static final long STEPS_PER_INTERRUPT_CHECK = 1 << 16;
+
+    private final int nVariables;
+    private final List<Integer> ruleSums = new ArrayList<>();
+    private final List<int[]> ruleVarIds = new ArrayList<>();
+
+    public BitMaskSolver(int nVariables) {
+        if (nVariables > MAX_VARIABLES) {
+            throw new IllegalArgumentException("Too many variables for brute force: " + nVariables);
+        }
+        this.nVariables = nVariables;
+    }
+
+    /**
+     * Adds a new constraint (or rule) to the problem.
+     *
+     * @param sum    Exactly how many variables in the rule are true?
+     * @param varIds ids of the boolean variables (0...N-1)
+     */
+    public void addRule(int sum, int... varIds) {
+        ruleSums.add(sum);
+        ruleVarIds.add(varIds.clone());
+    }
+
+    /**
+     * Solves the equations.
+     *
+     * @param solution array to put the solution in. solution[k][i] is the number of solutions with k true variables
+     *                 where variable(i) is set. Should be (N+1) by N.
+     * @return number of solutions, by number of true variables.
+     */
+    public BigDecimal[] solve(BigDecimal[][] solution) throws InterruptedException {
+        int numRules = ruleSums.size();
+        int[] sums = new int[numRules];
+        int[][] rulesOfVariable = new int[nVariables][];
+        int[] numRulesOf = new int[nVariables];
+        for (int r = 0; r < numRules; r++) {
+            sums[r] = ruleSums.get(r);
+            for (int v : ruleVarIds.get(r)) {
+                numRulesOf[v]++;
+            }
+        }
+        for (int v = 0; v < nVariables; v++) {
+            rulesOfVariable[v] = new int[numRulesOf[v]];
+            numRulesOf[v] = 0;
+        }
+        for (int r = 0; r < numRules; r++) {
+            for (int v : ruleVarIds.get(r)) {
+                rulesOfVariable[v][numRulesOf[v]++] = r;
+            }
+        }
+
+        long[] numSolutions = new long[nVariables + 1];
+        long[][] timesSet = new long[nVariables + 1][nVariables];
+
+        // Start from all variables false.
+        int[] ruleCount = new int[numRules];
+        int unsatisfied = 0;
+        for (int r = 0; r < numRules; r++) {
+            if (sums[r] != 0) {
+                unsatisfied++;
+            }
+        }
+
+        int mask = 0;
+        if (unsatisfied == 0) {
+            numSolutions[0]++;
+        }
+        for (long step = 1; step < 1L << nVariables; step++) {
+            if (step % STEPS_PER_INTERRUPT_CHECK == 0 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            int flipped = Long.numberOfTrailingZeros(step);
+            mask ^= 1 << flipped;
+            int delta = (mask >>> flipped & 1) == 1 ? 1 : -1;
+            for (int r : rulesOfVariable[flipped]) {
+                if (ruleCount[r] == sums[r]) {
+                    unsatisfied++;
+                }
+                ruleCount[r] += delta;
+                if (ruleCount[r] == sums[r]) {
+                    unsatisfied--;
+                }
+            }
+
+            if (unsatisfied == 0) {
+                int numTrue = Integer.bitCount(mask);
+                numSolutions[numTrue]++;
+                long[] timesSetForCount = timesSet[numTrue];
+                for (int bits = mask; bits != 0; bits &= bits - 1) {
+                    timesSetForCount[Integer.numberOfTrailingZeros(bits)]++;
+                }
+            }
+        }
+
+        BigDecimal[] retVal = new BigDecimal[nVariables + 1];
+        for (int k = 0; k <= nVariables; k++) {
+            retVal[k] = BigDecimal.valueOf(numSolutions[k]);
+            for (int v = 0; v < nVariables; v++) {
+                solution[k][v] = BigDecimal.valueOf(timesSet[k][v]);
+            }
+        }
+        return retVal;
+    }
+}
@@ -14,6 +14,9 @@ import java.util.Set;
 
 public class FrontierAI extends BackTrackComboAI {
 
+    // Groups this small are brute forced, which is quicker than setting up the frontier DP.
+    public static final int SMALL_GROUP_SIZE = 16;
+
     @Override
     public List<GroupResult> processGroups(
             PlayerView view,
@@ -24,11 +27,10 @@ public class FrontierAI extends BackTrackComboAI {
         int _i = 1;
         for (List<BoardCoord> group : groups) {
             final int _fi = _i++;
-            CSPSolver solver = new CSPSolver(group.size(), updateEvent -> reportProgressImmediate(
-                    new BoardUpdate(null, "Group #" + _fi + ": " + updateEvent.getMessage())));
-
             Set<BoardCoord> seenProbed = new HashSet<>();
             List<BoardCoord> varToBoardCoord = new ArrayList<>();
+            List<Integer> ruleSums = new ArrayList<>();
+            List<int[]> ruleVarIds = new ArrayList<>();
 
             for (BoardCoord l : group) {
                 for (BoardCoord probed : view.getNeighbours(l, SquareState.PROBED)) {
@@ -47,15 +49,29 @@ public class FrontierAI extends BackTrackComboAI {
                             varIdParam[i] = id;
                         }
 
-                        solver.addRule(
-                                view.getSquareMineCount(probed) - view.getNeighbours(probed, SquareState.FLAGGED)
-                                                                      .size(), varIdParam);
+                        ruleSums.add(view.getSquareMineCount(probed)
+                                - view.countNeighbours(probed, SquareState.FLAGGED));
+                        ruleVarIds.add(varIdParam);
                     }
                 }
             }
 
             BigDecimal[][] solution = new BigDecimal[group.size() + 1][group.size()];
-            BigDecimal[] numSolutions = solver.solveApproximate(solution);
+            BigDecimal[] numSolutions;
+            if (group.size() <= SMALL_GROUP_SIZE) {
+                BitMaskSolver solver = new BitMaskSolver(group.size());
+                for (int r = 0; r < ruleSums.size(); r++) {
+                    solver.addRule(ruleSums.get(r), ruleVarIds.get(r));
+                }
+                numSolutions = solver.solve(solution);
+            } else {
+                CSPSolver solver = new CSPSolver(group.size(), updateEvent -> reportProgressImmediate(
+                        new BoardUpdate(null, "Group #" + _fi + ": " + updateEvent.getMessage())));
+                for (int r = 0; r < ruleSums.size(); r++) {
+                    solver.addRule(ruleSums.get(r), ruleVarIds.get(r));
+                }
+                numSolutions = solver.solveApproximate(solution);
+            }
 
             GroupResult toAdd = new GroupResult(group);
             BigDecimal totalSols = BigDecimal.ZERO;
@@ -96,8 +96,8 @@ public class FrontierVisualizer extends FrontierAI {
                         }
 
                         solver.addRule(
-                                view.getSquareMineCount(probed) - view.getNeighbours(probed, SquareState.FLAGGED)
-                                        .size(), varIdParam);
+                                view.getSquareMineCount(probed) - view.countNeighbours(probed, SquareState.FLAGGED),
+                                varIdParam);
                     }
                 }
             }
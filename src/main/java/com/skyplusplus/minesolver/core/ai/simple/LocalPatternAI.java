@@ -0,0 +1,172 @@
+package com.skyplusplus.minesolver.core.ai.simple;
+
+import com.skyplusplus.minesolver.core.ai.BoardUpdate;
+import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import com.skyplusplus.minesolver.core.gamelogic.SquareState;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds certain moves by comparing neighbouring numbers two at a time. This catches the 1-2-1s, 1-2-2-1s and
+ * one-number-inside-another patterns that counting one number at a time misses, without solving whole groups.
+ *
+ * For numbers A and B, with the unknown squares around them split into onlyA, shared and onlyB:
+ *
+ *     minesNeeded(A) - minesNeeded(B) = mines(onlyA) - mines(onlyB) <= |onlyA|
+ *
+ * so if the difference equals |onlyA|, onlyA is all mines and onlyB is all safe.
+ *
+ * The unknown squares around a number are kept as a mask over its 8 neighbour slots. Two numbers can only share
+ * squares if B lies in the 5x5 window around A, and for each of the 24 positions B can take in that window a lookup
+ * table translates A's mask into B's slots. Each pair then takes a few bit operations. Only the probed squares are
+ * visited, and only numbers with unknown neighbours are kept, by square index, so the time taken is linear in the
+ * number of numbers rather than the size of the board.
+ */
+public class LocalPatternAI extends MineSweeperAI {
+
+    private static final int[] SLOT_DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] SLOT_DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int WINDOW_RADIUS = 2;
+    private static final int WINDOW_SIZE = WINDOW_RADIUS * 2 + 1;
+
+    // SLOTS_SEEN_FROM[window position of B relative to A][mask of A's slots] = mask of the same squares in B's slots,
+    // leaving out those that aren't next to B.
+    private static final int[][] SLOTS_SEEN_FROM = new int[WINDOW_SIZE * WINDOW_SIZE][1 << 8];
+
+    static {
+        for (int dx = -WINDOW_RADIUS; dx <= WINDOW_RADIUS; dx++) {
+            for (int dy = -WINDOW_RADIUS; dy <= WINDOW_RADIUS; dy++) {
+                int[] table = SLOTS_SEEN_FROM[windowIndex(dx, dy)];
+                for (int mask = 0; mask < 1 << 8; mask++) {
+                    for (int slot = 0; slot < 8; slot++) {
+                        if ((mask & 1 << slot) != 0) {
+                            int slotOfB = slotOf(SLOT_DX[slot] - dx, SLOT_DY[slot] - dy);
+                            if (slotOfB != -1) {
+                                table[mask] |= 1 << slotOfB;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Move calculate(PlayerView view) {
+        int width = view.getWidth();
+        int height = view.getHeight();
+
+        // The numbers with unknown squares next to them, in index order: their squares, the unknown squares as a slot
+        // mask, and the mines they still need. Numbers with no unknown neighbours take no part and aren't kept.
+        int[] probed = view.getSquareIndexes(SquareState.PROBED);
+        int[] numbers = new int[probed.length];
+        int[] unknownMask = new int[probed.length];
+        int[] minesNeeded = new int[probed.length];
+        Map<Integer, Integer> numberAt = new HashMap<>();
+        int numNumbers = 0;
+        for (int index : probed) {
+            int x = index % width;
+            int y = index / width;
+            int mask = 0;
+            int flags = 0;
+            for (int slot = 0; slot < 8; slot++) {
+                int nx = x + SLOT_DX[slot];
+                int ny = y + SLOT_DY[slot];
+                if (nx >= 0 && ny >= 0 && nx < width && ny < height) {
+                    SquareState state = view.getSquareState(ny * width + nx);
+                    if (state == SquareState.UNKNOWN) {
+                        mask |= 1 << slot;
+                    } else if (state == SquareState.FLAGGED) {
+                        flags++;
+                    }
+                }
+            }
+            if (mask != 0) {
+                numbers[numNumbers] = index;
+                unknownMask[numNumbers] = mask;
+                minesNeeded[numNumbers] = view.getSquareMineCount(index) - flags;
+                numberAt.put(index, numNumbers);
+                numNumbers++;
+            }
+        }
+
+        BitSet toProbe = new BitSet();
+        BitSet toFlag = new BitSet();
+        for (int a = 0; a < numNumbers; a++) {
+            int x = numbers[a] % width;
+            int y = numbers[a] / width;
+            int maskA = unknownMask[a];
+            // A number on its own: the difference against a number with nothing around it.
+            if (minesNeeded[a] == 0) {
+                addSlots(width, x, y, maskA, toProbe);
+            } else if (minesNeeded[a] == Integer.bitCount(maskA)) {
+                addSlots(width, x, y, maskA, toFlag);
+            }
+
+            for (int dx = -WINDOW_RADIUS; dx <= WINDOW_RADIUS; dx++) {
+                for (int dy = -WINDOW_RADIUS; dy <= WINDOW_RADIUS; dy++) {
+                    int bx = x + dx;
+                    int by = y + dy;
+                    if ((dx == 0 && dy == 0) || bx < 0 || by < 0 || bx >= width || by >= height) {
+                        continue;
+                    }
+                    Integer b = numberAt.get(by * width + bx);
+                    if (b == null) {
+                        continue;
+                    }
+                    int maskB = unknownMask[b];
+                    int sharedInB = SLOTS_SEEN_FROM[windowIndex(dx, dy)][maskA];
+                    if (sharedInB == 0) {
+                        continue;
+                    }
+                    int onlyA = maskA & ~SLOTS_SEEN_FROM[windowIndex(-dx, -dy)][maskB];
+                    int onlyB = maskB & ~sharedInB;
+                    if ((onlyA | onlyB) != 0 && minesNeeded[a] - minesNeeded[b] == Integer.bitCount(onlyA)) {
+                        addSlots(width, x, y, onlyA, toFlag);
+                        addSlots(width, bx, by, onlyB, toProbe);
+                    }
+                }
+            }
+        }
+
+        Move move = Move.ofIndexes(width, toProbe.stream().toArray(), toFlag.stream().toArray());
+        reportCertainMove(move);
+        try {
+            this.reportProgress(() -> new BoardUpdate(null, "Local patterns found " + toProbe.cardinality() + " to probe and "
+                    + toFlag.cardinality() + " to flag"));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        return move;
+    }
+
+    private static void addSlots(int width, int x, int y, int mask, BitSet to) {
+        for (int slot = 0; slot < 8; slot++) {
+            if ((mask & 1 << slot) != 0) {
+                to.set((y + SLOT_DY[slot]) * width + x + SLOT_DX[slot]);
+            }
+        }
+    }
+
+    private static int windowIndex(int dx, int dy) {
+        return (dx + WINDOW_RADIUS) * WINDOW_SIZE + dy + WINDOW_RADIUS;
+    }
+
+    private static int slotOf(int dx, int dy) {
+        for (int slot = 0; slot < 8; slot++) {
+            if (SLOT_DX[slot] == dx && SLOT_DY[slot] == dy) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "Local Pattern AI";
+    }
+}
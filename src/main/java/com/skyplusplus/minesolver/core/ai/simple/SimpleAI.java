@@ -3,7 +3,7 @@ package com.skyplusplus.minesolver.core.ai.simple;
 import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
 import com.skyplusplus.minesolver.core.ai.Move;
 import com.skyplusplus.minesolver.core.ai.BoardUpdate;
-import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.Bitboard;
 import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
 import com.skyplusplus.minesolver.core.gamelogic.SquareState;
 
@@ -12,6 +12,13 @@ import java.util.*;
 public class SimpleAI extends MineSweeperAI {
     private final boolean shouldGuess;
 
+    // Probed squares that have a certain move next to them, as of the last view seen. Only squares changed since then,
+    // and their neighbours, can have changed whether they have a move.
+    private final BitSet numbersWithMoves = new BitSet();
+    private long lastLineage = -1;
+    private int lastRevision = 0;
+    private final int[] neighbours = new int[8];
+
     public SimpleAI(boolean shouldGuess) {
         this.shouldGuess = shouldGuess;
     }
@@ -22,66 +29,132 @@ public class SimpleAI extends MineSweeperAI {
 
     @Override
     public Move calculate(PlayerView view) {
-        Set<BoardCoord> toHit = new HashSet<>();
-        Set<BoardCoord> toFlag = new HashSet<>();
+        BitSet toHit = new BitSet();
+        BitSet toFlag = new BitSet();
 
         naivelyFindMoves(view, toHit, toFlag);
+        reportCertainMove(Move.ofIndexes(view.getWidth(), toHit.stream().toArray(), toFlag.stream().toArray()));
 
         if (shouldGuess) {
             if (toHit.isEmpty() && toFlag.isEmpty()) {
-                List<BoardCoord> canHit = getHittableCoords(view);
+                List<Integer> canHit = getHittableSquares(view);
                 if (canHit.size() > 0) {
-                    toHit.add(getRandomMove(canHit));
+                    toHit.set(getRandomMove(canHit));
                 }
             }
         }
 
         try {
-            this.reportProgress(() -> new BoardUpdate(null, "Simple AI hitting " + toHit.size() + " squares"));
+            this.reportProgress(() -> new BoardUpdate(null, "Simple AI hitting " + toHit.cardinality() + " squares"));
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
 
-        return new Move(new ArrayList<>(toHit), new ArrayList<>(toFlag));
+        return Move.ofIndexes(view.getWidth(), toHit.stream().toArray(), toFlag.stream().toArray());
     }
 
-    private static BoardCoord getRandomMove(List<BoardCoord> possibleMoves) {
+    private static int getRandomMove(List<Integer> possibleMoves) {
         Collections.shuffle(possibleMoves);
         return possibleMoves.get(0);
     }
 
     /**
      * Naively finds moves that are certainly successful by counting neighbours.
-     * @return all possible places to hit.
+     *
+     * When the view is a later copy of the same board as last time, and the board still has the changes since then,
+     * only the squares changed and their neighbours are looked at again. Otherwise the whole board is, on bitboards.
      */
-    private static void naivelyFindMoves(
+    private void naivelyFindMoves(
             PlayerView view,
-            Set<BoardCoord> toHit,
-            Set<BoardCoord> toFlag
+            BitSet toHit,
+            BitSet toFlag
     ) {
-        for (BoardCoord coord: view.getAllSquares()) {
-            if (view.getSquareState(coord) == SquareState.PROBED) {
-                // Naively flag all neighbours of saturated numbers.
-                int numMines = view.getSquareMineCount(coord);
-                List<BoardCoord> flaggedSquares = view.getNeighbours(coord, SquareState.FLAGGED);
-                List<BoardCoord> unknownSquares = view.getNeighbours(coord, SquareState.UNKNOWN);
-
-                if (flaggedSquares.size() == numMines) {
-                    toHit.addAll(unknownSquares);
-                } else if (unknownSquares.size() + flaggedSquares.size() == numMines) {
-                    toFlag.addAll(unknownSquares);
+        if (view.getLineage() == lastLineage && view.getRevision() >= lastRevision
+                && lastRevision >= view.getOldestRevision()) {
+            BitSet dirty = new BitSet();
+            for (int index : view.getChangedIndexesSince(lastRevision)) {
+                dirty.set(index);
+                int numNeighbours = view.getNeighbours(index, neighbours);
+                for (int i = 0; i < numNeighbours; i++) {
+                    dirty.set(neighbours[i]);
                 }
             }
+            for (int index = dirty.nextSetBit(0); index >= 0; index = dirty.nextSetBit(index + 1)) {
+                numbersWithMoves.set(index, findMoves(view, index, null, null));
+            }
+            for (int index = numbersWithMoves.nextSetBit(0); index >= 0;
+                 index = numbersWithMoves.nextSetBit(index + 1)) {
+                findMoves(view, index, toHit, toFlag);
+            }
+        } else {
+            findAllMoves(view, toHit, toFlag);
         }
+        lastLineage = view.getLineage();
+        lastRevision = view.getRevision();
+    }
+
+    /**
+     * Same as {@link #findMoves} for every square of the board at once, on bitboards: the numbers and the counts of
+     * flagged and unknown neighbours are compared 64 squares at a time.
+     */
+    private void findAllMoves(PlayerView view, BitSet toHit, BitSet toFlag) {
+        Bitboard unknown = view.getBitboard(SquareState.UNKNOWN);
+        Bitboard[] numUnknown = unknown.countNeighbours();
+        Bitboard[] numFlagged = view.getBitboard(SquareState.FLAGGED).countNeighbours();
+        Bitboard[] numMines = view.getNumberBitboards();
+
+        Bitboard numbersToClear = view.getBitboard(SquareState.PROBED).and(Bitboard.nonZero(numUnknown));
+        Bitboard numbersToFlag = numbersToClear.copy();
+        numbersToClear.and(Bitboard.equal(numFlagged, numMines));
+        numbersToFlag.and(Bitboard.equal(Bitboard.add(numUnknown, numFlagged), numMines));
+
+        numbersWithMoves.clear();
+        numbersWithMoves.or(numbersToClear.copy().or(numbersToFlag).toBitSet());
+        toHit.or(numbersToClear.anyNeighbour().and(unknown).toBitSet());
+        toFlag.or(numbersToFlag.anyNeighbour().and(unknown).toBitSet());
     }
 
-    private static List<BoardCoord> getHittableCoords(PlayerView view) {
-        List<BoardCoord> canHit = new ArrayList<>();
-        for (BoardCoord coord: view.getAllSquares()) {
-            if (view.getSquareState(coord) == SquareState.UNKNOWN) {
-                canHit.add(coord);
+    /**
+     * Finds the certain moves next to a square, if it is a number.
+     *
+     * @return whether there are any.
+     */
+    private boolean findMoves(PlayerView view, int index, BitSet toHit, BitSet toFlag) {
+        if (view.getSquareState(index) != SquareState.PROBED) {
+            return false;
+        }
+        // Naively flag all neighbours of saturated numbers.
+        int numMines = view.getSquareMineCount(index);
+        int numFlagged = view.countNeighbours(index, SquareState.FLAGGED);
+        int numUnknown = view.countNeighbours(index, SquareState.UNKNOWN);
+        if (numUnknown == 0) {
+            return false;
+        }
+
+        BitSet into;
+        if (numFlagged == numMines) {
+            into = toHit;
+        } else if (numUnknown + numFlagged == numMines) {
+            into = toFlag;
+        } else {
+            return false;
+        }
+        if (into != null) {
+            int numNeighbours = view.getNeighbours(index, neighbours);
+            for (int i = 0; i < numNeighbours; i++) {
+                if (view.getSquareState(neighbours[i]) == SquareState.UNKNOWN) {
+                    into.set(neighbours[i]);
+                }
             }
         }
+        return true;
+    }
+
+    private static List<Integer> getHittableSquares(PlayerView view) {
+        List<Integer> canHit = new ArrayList<>();
+        for (int index : view.getSquareIndexes(SquareState.UNKNOWN)) {
+            canHit.add(index);
+        }
         return canHit;
     }
 
@@ -0,0 +1,357 @@
+package com.skyplusplus.minesolver.core.gamelogic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * One bit per square of a board, 64 squares to a long, in square index order, y * width + x. Rows follow each other
+ * with no padding, so the neighbour in any direction is the same number of bits away from every square, and a whole
+ * board can be worked on a word at a time.
+ *
+ * Numbers per square, such as counts of neighbours, are bit sliced: an array of bitboards, the first holding the lowest
+ * bit of every square's number. Four are enough for numbers up to 15.
+ */
+public final class Bitboard {
+
+    public static final int COUNT_BITS = 4;
+
+    private final int width;
+    private final int height;
+    private final long[] words;
+
+    public Bitboard(int width, int height) {
+        if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid board size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.words = new long[(int) (((long) width * height + Long.SIZE - 1) / Long.SIZE)];
+    }
+
+    private Bitboard(Bitboard original) {
+        this.width = original.width;
+        this.height = original.height;
+        this.words = original.words.clone();
+    }
+
+    /**
+     * A bitboard of the given squares.
+     */
+    public static Bitboard of(int width, int height, BitSet squares) {
+        Bitboard retVal = new Bitboard(width, height);
+        long[] bits = squares.toLongArray();
+        System.arraycopy(bits, 0, retVal.words, 0, Math.min(bits.length, retVal.words.length));
+        retVal.clearPadding();
+        return retVal;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words[index >>> 6] & 1L << index) != 0;
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        checkIndex(index);
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Index of the first square set at or after the given one, or -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        int word = from >>> 6;
+        if (from < 0 || word >= words.length) {
+            return -1;
+        }
+        long remaining = words[word] & -1L << from;
+        while (remaining == 0) {
+            if (++word == words.length) {
+                return -1;
+            }
+            remaining = words[word];
+        }
+        return word << 6 | Long.numberOfTrailingZeros(remaining);
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Bitboard copy() {
+        return new Bitboard(this);
+    }
+
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Keeps only the squares also set in the other board.
+     *
+     * @return this board.
+     */
+    public Bitboard and(Bitboard other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+        return this;
+    }
+
+    /**
+     * Adds the squares set in the other board.
+     *
+     * @return this board.
+     */
+    public Bitboard or(Bitboard other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+        return this;
+    }
+
+    /**
+     * Removes the squares set in the other board.
+     *
+     * @return this board.
+     */
+    public Bitboard andNot(Bitboard other) {
+        checkSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+        return this;
+    }
+
+    /**
+     * The squares next to at least one square set in this board.
+     */
+    public Bitboard anyNeighbour() {
+        Bitboard retVal = new Bitboard(width, height);
+        for (int w = 0; w < words.length; w++) {
+            long notLeft = ~columnMask(w, 0);
+            long notRight = ~columnMask(w, width - 1);
+            long start = (long) w << 6;
+            long any = 0;
+            for (int dy = -1; dy <= 1; dy++) {
+                long row = start + (long) dy * width;
+                any |= (wordAt(row - 1) & notLeft) | (wordAt(row + 1) & notRight);
+                if (dy != 0) {
+                    any |= wordAt(row);
+                }
+            }
+            retVal.words[w] = any;
+        }
+        retVal.clearPadding();
+        return retVal;
+    }
+
+    /**
+     * How many of each square's neighbours are set in this board, bit sliced into {@link #COUNT_BITS} bitboards.
+     *
+     * The eight neighbouring words are added into the counters one at a time, with a ripple of ands and xors, so every
+     * count costs a few dozen operations per 64 squares.
+     */
+    public Bitboard[] countNeighbours() {
+        Bitboard[] retVal = newCounts(width, height);
+        for (int w = 0; w < words.length; w++) {
+            long notLeft = ~columnMask(w, 0);
+            long notRight = ~columnMask(w, width - 1);
+            long start = (long) w << 6;
+            long c0 = 0;
+            long c1 = 0;
+            long c2 = 0;
+            long c3 = 0;
+            for (int dy = -1; dy <= 1; dy++) {
+                long row = start + (long) dy * width;
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx == 0 && dy == 0) {
+                        continue;
+                    }
+                    long bits = wordAt(row + dx);
+                    if (dx < 0) {
+                        bits &= notLeft;
+                    } else if (dx > 0) {
+                        bits &= notRight;
+                    }
+                    long carry = c0 & bits;
+                    c0 ^= bits;
+                    long next = c1 & carry;
+                    c1 ^= carry;
+                    carry = c2 & next;
+                    c2 ^= next;
+                    c3 ^= carry;
+                }
+            }
+            retVal[0].words[w] = c0;
+            retVal[1].words[w] = c1;
+            retVal[2].words[w] = c2;
+            retVal[3].words[w] = c3;
+        }
+        for (Bitboard plane : retVal) {
+            plane.clearPadding();
+        }
+        return retVal;
+    }
+
+    /**
+     * Bit sliced numbers, all zero.
+     */
+    public static Bitboard[] newCounts(int width, int height) {
+        Bitboard[] retVal = new Bitboard[COUNT_BITS];
+        for (int i = 0; i < COUNT_BITS; i++) {
+            retVal[i] = new Bitboard(width, height);
+        }
+        return retVal;
+    }
+
+    /**
+     * The number of one square, out of bit sliced numbers.
+     */
+    public static int countAt(Bitboard[] counts, int index) {
+        int count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i].get(index)) {
+                count |= 1 << i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Square by square sums of bit sliced numbers, which must not go over 15.
+     */
+    public static Bitboard[] add(Bitboard[] a, Bitboard[] b) {
+        Bitboard[] retVal = newCounts(a[0].width, a[0].height);
+        for (int w = 0; w < a[0].words.length; w++) {
+            long carry = 0;
+            for (int i = 0; i < COUNT_BITS; i++) {
+                long x = a[i].words[w];
+                long y = b[i].words[w];
+                retVal[i].words[w] = x ^ y ^ carry;
+                carry = (x & y) | (carry & (x ^ y));
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * The squares whose bit sliced numbers are the same in both.
+     */
+    public static Bitboard equal(Bitboard[] a, Bitboard[] b) {
+        Bitboard retVal = new Bitboard(a[0].width, a[0].height);
+        for (int w = 0; w < retVal.words.length; w++) {
+            long differ = 0;
+            for (int i = 0; i < COUNT_BITS; i++) {
+                differ |= a[i].words[w] ^ b[i].words[w];
+            }
+            retVal.words[w] = ~differ;
+        }
+        retVal.clearPadding();
+        return retVal;
+    }
+
+    /**
+     * The squares whose bit sliced numbers aren't zero.
+     */
+    public static Bitboard nonZero(Bitboard[] counts) {
+        Bitboard retVal = new Bitboard(counts[0].width, counts[0].height);
+        for (Bitboard plane : counts) {
+            retVal.or(plane);
+        }
+        return retVal;
+    }
+
+    /**
+     * Copies words of another bitset in, starting at the given word of this one.
+     */
+    void setWords(int fromWord, long[] from, int offset, int length) {
+        System.arraycopy(from, offset, words, fromWord, length);
+    }
+
+    /**
+     * The 64 squares starting at the given square. Squares off the board are all clear.
+     */
+    private long wordAt(long bit) {
+        // Shifts round down for squares before the board, as floorDiv and floorMod would.
+        int word = (int) (bit >> 6);
+        int shift = (int) bit & Long.SIZE - 1;
+        long low = word >= 0 && word < words.length ? words[word] : 0;
+        if (shift == 0) {
+            return low;
+        }
+        long high = word + 1 >= 0 && word + 1 < words.length ? words[word + 1] : 0;
+        return low >>> shift | high << Long.SIZE - shift;
+    }
+
+    /**
+     * The squares of a word that are in the given column.
+     */
+    private long columnMask(int word, int column) {
+        long start = (long) word << 6;
+        long retVal = 0;
+        for (long offset = Math.floorMod(column - start, width); offset < Long.SIZE; offset += width) {
+            retVal |= 1L << offset;
+        }
+        return retVal;
+    }
+
+    // Bits past the last square are kept clear, so that shifted reads see nothing off the board.
+    private void clearPadding() {
+        int used = (int) ((long) width * height % Long.SIZE);
+        if (used != 0) {
+            words[words.length - 1] &= (1L << used) - 1;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= width * height) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: " + index);
+        }
+    }
+
+    private void checkSize(Bitboard other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Bitboards of different boards: " + width + "x" + height + " and "
+                    + other.width + "x" + other.height);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Bitboard && ((Bitboard) other).width == width && ((Bitboard) other).height == height
+                && Arrays.equals(((Bitboard) other).words, words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,13 @@
+package com.skyplusplus.minesolver.core.gamelogic;
+
+/**
+ * Told about every action on a {@link MineSweeper} that changed the board.
+ */
+@FunctionalInterface
+public interface BoardChangeListener {
+    /**
+     * @param delta the changes. It is reused for the next action, so it is only valid during the call: copy it to keep
+     *              it.
+     */
+    void onBoardChanged(BoardDelta delta);
+}
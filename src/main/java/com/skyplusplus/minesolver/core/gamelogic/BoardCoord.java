@@ -1,24 +1,60 @@
 package com.skyplusplus.minesolver.core.gamelogic;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A square on the board. Coordinates in the range boards use are cached, so the same square is always the same object.
+ *
+ * Hot loops should prefer the int square indexes of {@link PlayerView} and {@link MineSweeper}, which need no objects
+ * at all.
+ */
 public class BoardCoord {
-    private static final int CACHE_MAX_X = 300;
-    private static final int CACHE_MAX_Y = 300;
-    private static final BoardCoord[][] cache = new BoardCoord[CACHE_MAX_X][CACHE_MAX_Y];
+    private static final int BLOCK_BITS = 6;
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+    private static final int MAX_CACHED = 1 << 16;
+    private static final int BLOCKS_PER_SIDE = MAX_CACHED >> BLOCK_BITS;
+
+    // cache[x / 64][y / 64][(x % 64) * 64 + y % 64], with the arrays made as squares in them are first asked for, so
+    // only the parts of the range in use take memory. Everything is written under the class lock, and nothing is ever
+    // replaced, so any non-null entry a reader sees is the one true instance. A reader that sees null takes the lock.
+    private static final BoardCoord[][][] cache = new BoardCoord[BLOCKS_PER_SIDE][][];
 
     private final int x;
     private final int y;
 
     public static BoardCoord ofValue(int x, int y) {
-        if (x >= 0 && x < CACHE_MAX_X && y >= 0 && y < CACHE_MAX_Y) {
-            if (cache[x][y] == null) {
-                cache[x][y] = new BoardCoord(x, y);
+        if (x < 0 || y < 0 || x >= MAX_CACHED || y >= MAX_CACHED) {
+            return new BoardCoord(x, y);
+        }
+        BoardCoord[][] column = cache[x >> BLOCK_BITS];
+        if (column != null) {
+            BoardCoord[] block = column[y >> BLOCK_BITS];
+            if (block != null) {
+                BoardCoord coord = block[(x & BLOCK_MASK) << BLOCK_BITS | y & BLOCK_MASK];
+                if (coord != null) {
+                    return coord;
+                }
             }
-            return cache[x][y];
         }
-        return new BoardCoord(x, y);
+        return ofValueLocked(x, y);
+    }
+
+    private static synchronized BoardCoord ofValueLocked(int x, int y) {
+        BoardCoord[][] column = cache[x >> BLOCK_BITS];
+        if (column == null) {
+            column = new BoardCoord[BLOCKS_PER_SIDE][];
+            cache[x >> BLOCK_BITS] = column;
+        }
+        BoardCoord[] block = column[y >> BLOCK_BITS];
+        if (block == null) {
+            block = new BoardCoord[1 << BLOCK_BITS * 2];
+            column[y >> BLOCK_BITS] = block;
+        }
+        int i = (x & BLOCK_MASK) << BLOCK_BITS | y & BLOCK_MASK;
+        if (block[i] == null) {
+            block[i] = new BoardCoord(x, y);
+        }
+        return block[i];
     }
 
     public int getX() {
@@ -44,19 +80,15 @@ public class BoardCoord {
     }
 
     public List<BoardCoord> getNeighbours(int width, int height) {
-        List<BoardCoord> retVal = new ArrayList<>();
-        for (int x = Math.max(0, this.x-1); x <= Math.min(width-1, this.x+1); x++) {
-            for (int y = Math.max(0, this.y-1); y <= Math.min(height-1, this.y+1); y++) {
-                if (x == this.x && y == this.y) continue;
-                retVal.add(BoardCoord.ofValue(x, y));
-            }
-        }
-        return retVal;
+        return BoardTopology.of(width, height).getNeighbours(this);
     }
 
+    /**
+     * Distinct for all coordinates below 2^16.
+     */
     @Override
     public int hashCode() {
-        return this.x * 100000 + this.y;
+        return (this.x << 16 | this.x >>> 16) ^ this.y;
     }
 
     @Override
@@ -0,0 +1,92 @@
+package com.skyplusplus.minesolver.core.gamelogic;
+
+import java.util.Arrays;
+
+/**
+ * The squares one action changed, in the order they changed, each with the state and number it was left with. Each
+ * change is an int index and one byte, in the same layout as {@link PlayerView}.
+ *
+ * A delta can be cleared and filled again, so a consumer that is done with one can hand it back to be reused.
+ */
+public class BoardDelta {
+    private int[] indexes;
+    private byte[] squares;
+    private int size = 0;
+
+    public BoardDelta() {
+        this(16);
+    }
+
+    public BoardDelta(int initialCapacity) {
+        indexes = new int[Math.max(1, initialCapacity)];
+        squares = new byte[indexes.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getIndex(int i) {
+        checkInRange(i);
+        return indexes[i];
+    }
+
+    public SquareState getState(int i) {
+        checkInRange(i);
+        return PlayerView.stateOf(squares[i]);
+    }
+
+    /**
+     * The number revealed, if the change left the square PROBED.
+     */
+    public int getNumber(int i) {
+        checkInRange(i);
+        return PlayerView.numberOf(squares[i]);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes the same changes to a view, such as a copy taken before the action, to bring it up to date.
+     */
+    public void applyTo(PlayerView view) {
+        for (int i = 0; i < size; i++) {
+            SquareState state = PlayerView.stateOf(squares[i]);
+            if (state == SquareState.PROBED) {
+                view.setBoard(indexes[i], PlayerView.numberOf(squares[i]));
+            } else {
+                view.setBoard(indexes[i], state);
+            }
+        }
+    }
+
+    public BoardDelta copy() {
+        BoardDelta retVal = new BoardDelta(size);
+        System.arraycopy(indexes, 0, retVal.indexes, 0, size);
+        System.arraycopy(squares, 0, retVal.squares, 0, size);
+        retVal.size = size;
+        return retVal;
+    }
+
+    void add(int index, byte square) {
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size * 2);
+            squares = Arrays.copyOf(squares, size * 2);
+        }
+        indexes[size] = index;
+        squares[size] = square;
+        size++;
+    }
+
+    private void checkInRange(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("No change " + i + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.skyplusplus.minesolver.core.gamelogic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Which squares are next to which on a board of a given size, by square index, y * width + x. The index methods create
+ * no objects, and topologies are shared by every board of the same size.
+ *
+ * A square's neighbours only depend on which edges of the board it is on, so there is one table of index offsets for
+ * each combination of edges, rather than a list of neighbours for every square. Finding the neighbours of a square is
+ * then a lookup of its table and an add per neighbour, and the topology of even the largest board takes no memory to
+ * speak of. Neighbours are listed column by column, as {@link BoardCoord#getNeighbours(int, int)} does.
+ */
+public final class BoardTopology {
+
+    // Enough for every board size in use at once. The cache is cleared when full, since topologies are cheap to make.
+    private static final int MAX_CACHED = 256;
+    private static final Map<Long, BoardTopology> cache = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    // Indexed by edgesOf: the offsets from a square to its neighbours.
+    private final int[][] neighbourOffsets = new int[16][];
+
+    private BoardTopology(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid board size: " + width + "x" + height);
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Board too large: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        for (int edges = 0; edges < neighbourOffsets.length; edges++) {
+            int[] offsets = new int[8];
+            int count = 0;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if ((dx == 0 && dy == 0)
+                            || (dx < 0 && (edges & 1) != 0)
+                            || (dx > 0 && (edges & 2) != 0)
+                            || (dy < 0 && (edges & 4) != 0)
+                            || (dy > 0 && (edges & 8) != 0)) {
+                        continue;
+                    }
+                    offsets[count++] = dy * width + dx;
+                }
+            }
+            neighbourOffsets[edges] = Arrays.copyOf(offsets, count);
+        }
+    }
+
+    /**
+     * The topology of a board of the given size.
+     */
+    public static BoardTopology of(int width, int height) {
+        long key = (long) width << 32 | height & 0xffffffffL;
+        BoardTopology topology = cache.get(key);
+        if (topology == null) {
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+            topology = cache.computeIfAbsent(key, k -> new BoardTopology(width, height));
+        }
+        return topology;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSquareCount() {
+        return width * height;
+    }
+
+    public int getNeighbourCount(int index) {
+        return neighbourOffsets[edgesOf(index)].length;
+    }
+
+    /**
+     * Puts the indexes of the squares next to a square into the array, which needs room for 8.
+     *
+     * @return number of neighbours.
+     */
+    public int getNeighbours(int index, int[] into) {
+        int[] offsets = neighbourOffsets[edgesOf(index)];
+        for (int i = 0; i < offsets.length; i++) {
+            into[i] = index + offsets[i];
+        }
+        return offsets.length;
+    }
+
+    /**
+     * Calls the visitor with the index of each square next to a square.
+     */
+    public void forEachNeighbour(int index, IntConsumer visitor) {
+        for (int offset : neighbourOffsets[edgesOf(index)]) {
+            visitor.accept(index + offset);
+        }
+    }
+
+    /**
+     * The squares next to a square, as a new list free to change.
+     */
+    public List<BoardCoord> getNeighbours(BoardCoord coord) {
+        int index = indexOf(coord.getX(), coord.getY());
+        int[] offsets = neighbourOffsets[edgesOf(index)];
+        List<BoardCoord> retVal = new ArrayList<>(offsets.length);
+        for (int offset : offsets) {
+            retVal.add(BoardCoord.ofValue((index + offset) % width, (index + offset) / width));
+        }
+        return retVal;
+    }
+
+    public int indexOf(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: (" + x + ", " + y + ")");
+        }
+        return y * width + x;
+    }
+
+    /**
+     * Which edges of the board the square is on: left, right, top and bottom, one bit each.
+     */
+    private int edgesOf(int index) {
+        if (index < 0 || index >= width * height) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: " + index);
+        }
+        int x = index % width;
+        int y = index / width;
+        return (x == 0 ? 1 : 0) | (x == width - 1 ? 2 : 0) | (y == 0 ? 4 : 0) | (y == height - 1 ? 8 : 0);
+    }
+}
@@ -0,0 +1,92 @@
+package com.skyplusplus.minesolver.core.gamelogic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed size chunks of bytes, kept in a temporary file that is memory mapped a segment at a time. Each chunk gets a
+ * slot the first time it is written, and keeps it.
+ */
+class ChunkStore implements AutoCloseable {
+
+    private static final int SLOTS_PER_SEGMENT = 256;
+
+    private final int chunkBytes;
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    ChunkStore(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+        try {
+            file = Files.createTempFile("minefield", ".chunks");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    void write(long key, byte[] chunk) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(key, slot);
+        }
+        MappedByteBuffer segment = segmentOf(slot);
+        segment.position(slot % SLOTS_PER_SEGMENT * chunkBytes);
+        segment.put(chunk, 0, chunkBytes);
+    }
+
+    /**
+     * @return false if the chunk was never written, leaving into as it was.
+     */
+    boolean read(long key, byte[] into) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            return false;
+        }
+        MappedByteBuffer segment = segmentOf(slot);
+        segment.position(slot % SLOTS_PER_SEGMENT * chunkBytes);
+        segment.get(into, 0, chunkBytes);
+        return true;
+    }
+
+    private MappedByteBuffer segmentOf(int slot) {
+        int segment = slot / SLOTS_PER_SEGMENT;
+        try {
+            while (segments.size() <= segment) {
+                long segmentBytes = (long) SLOTS_PER_SEGMENT * chunkBytes;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentBytes, segmentBytes));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments.get(segment);
+    }
+
+    @Override
+    public void close() {
+        segments.clear();
+        slots.clear();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.skyplusplus.minesolver.core.gamelogic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Minesweeper on a board with no edges, for playing the AIs for as long as they last.
+ *
+ * The board is split into 64x64 chunks. A chunk's mines are generated from the seed and the chunk's position, so they
+ * are the same every time the chunk is looked at and never need to be stored. What the player has done to a chunk is
+ * kept as one byte per square, laid out as in {@link PlayerView}. Chunks are made when first touched, and the most
+ * recently used ones are kept in memory. Others are written to a memory mapped {@link ChunkStore} if anything in them
+ * has changed, and read back when touched again.
+ *
+ * The first probe is always a zero: mines next to it are left out. There is no winning, only losing.
+ *
+ * The AIs play on a {@link Window}, a {@link PlayerView} of a rectangle of the board.
+ */
+public class InfiniteMineSweeper implements AutoCloseable {
+
+    public static final int CHUNK_BITS = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    public static final int DEFAULT_MAX_HOT_CHUNKS = 1024;
+    // Below this, the openings of zeros can go on forever.
+    public static final double MIN_DENSITY = 0.1;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final long seed;
+    private final double mineDensity;
+    private final int maxHotChunks;
+    private final Map<Long, Chunk> hotChunks;
+    private ChunkStore coldChunks = null;
+
+    private boolean started = false;
+    private int startX;
+    private int startY;
+    private GameState gameState = GameState.IN_PROGRESS;
+    private long numSquaresExposed = 0;
+    private long numFlags = 0;
+    private long[] fillStack = new long[16];
+
+    // Smallest rectangle holding every square that isn't unknown.
+    private int minX = 0;
+    private int maxX = -1;
+    private int minY = 0;
+    private int maxY = -1;
+
+    public InfiniteMineSweeper(long seed, double mineDensity) {
+        this(seed, mineDensity, DEFAULT_MAX_HOT_CHUNKS);
+    }
+
+    /**
+     * @param mineDensity  chance of each square being a mine, at least {@link #MIN_DENSITY}.
+     * @param maxHotChunks number of chunks to keep in memory.
+     */
+    public InfiniteMineSweeper(long seed, double mineDensity, int maxHotChunks) {
+        if (mineDensity < MIN_DENSITY || mineDensity >= 1) {
+            throw new IllegalArgumentException("Mine density must be in [" + MIN_DENSITY + ", 1): " + mineDensity);
+        }
+        if (maxHotChunks < 1) {
+            throw new IllegalArgumentException("Need at least one hot chunk");
+        }
+        this.seed = seed;
+        this.mineDensity = mineDensity;
+        this.maxHotChunks = maxHotChunks;
+        this.hotChunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= InfiniteMineSweeper.this.maxHotChunks) {
+                    return false;
+                }
+                Chunk chunk = eldest.getValue();
+                if (chunk.dirty) {
+                    if (coldChunks == null) {
+                        coldChunks = new ChunkStore(CHUNK_SIZE * CHUNK_SIZE);
+                    }
+                    coldChunks.write(eldest.getKey(), chunk.squares);
+                }
+                return true;
+            }
+        };
+    }
+
+    /***
+     * Effect a probe on an unknown square. Does nothing on a flag or already uncovered square. Loses the game on a
+     * mine. No effect when the game has ended.
+     */
+    public ProbeResult probe(int x, int y) {
+        if (gameState != GameState.IN_PROGRESS) {
+            return ProbeResult.NOP;
+        }
+        if (!started) {
+            startX = x;
+            startY = y;
+            started = true;
+        }
+
+        if (getSquareState(x, y) != SquareState.UNKNOWN) {
+            return ProbeResult.NOP;
+        } else if (isMine(x, y)) {
+            setSquare(x, y, SquareState.MINE, 0);
+            gameState = GameState.LOSE;
+            return ProbeResult.LOSE;
+        } else {
+            cascade(x, y);
+            return ProbeResult.OK;
+        }
+    }
+
+    private void cascade(int x, int y) {
+        int size = 0;
+        fillStack[size++] = pack(x, y);
+        while (size > 0) {
+            long square = fillStack[--size];
+            int sx = (int) (square >> 32);
+            int sy = (int) square;
+            if (getSquareState(sx, sy) != SquareState.UNKNOWN) {
+                continue;
+            }
+            int number = countNeighbouringMines(sx, sy);
+            setSquare(sx, sy, SquareState.PROBED, number);
+            numSquaresExposed++;
+            if (number != 0) {
+                continue;
+            }
+            for (long nx = sx - 1L; nx <= sx + 1L; nx++) {
+                for (long ny = sy - 1L; ny <= sy + 1L; ny++) {
+                    if (isOnBoard(nx, ny) && getSquareState((int) nx, (int) ny) == SquareState.UNKNOWN) {
+                        if (size == fillStack.length) {
+                            fillStack = Arrays.copyOf(fillStack, size * 2);
+                        }
+                        fillStack[size++] = pack((int) nx, (int) ny);
+                    }
+                }
+            }
+        }
+    }
+
+    /***
+     * Flags a square, if unknown.
+     */
+    public FlagResult flag(int x, int y) {
+        if (gameState != GameState.IN_PROGRESS || getSquareState(x, y) != SquareState.UNKNOWN) {
+            return FlagResult.NOP;
+        }
+        setSquare(x, y, SquareState.FLAGGED, 0);
+        numFlags++;
+        return FlagResult.FLAGGED;
+    }
+
+    /***
+     * Unflags a square, if flagged.
+     */
+    public FlagResult unflag(int x, int y) {
+        if (gameState != GameState.IN_PROGRESS || getSquareState(x, y) != SquareState.FLAGGED) {
+            return FlagResult.NOP;
+        }
+        setSquare(x, y, SquareState.UNKNOWN, 0);
+        numFlags--;
+        return FlagResult.UNFLAGGED;
+    }
+
+    public SquareState getSquareState(int x, int y) {
+        return PlayerView.stateOf(chunkAt(x, y).squares[indexInChunk(x, y)]);
+    }
+
+    public int getSquareMineCount(int x, int y) {
+        return PlayerView.numberOf(chunkAt(x, y).squares[indexInChunk(x, y)]);
+    }
+
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    public long getNumSquaresExposed() {
+        return numSquaresExposed;
+    }
+
+    public long getNumFlags() {
+        return numFlags;
+    }
+
+    public double getMineDensity() {
+        return mineDensity;
+    }
+
+    public int getNumHotChunks() {
+        return hotChunks.size();
+    }
+
+    /**
+     * Number of chunks written out of memory so far.
+     */
+    public int getNumColdChunks() {
+        return coldChunks == null ? 0 : coldChunks.size();
+    }
+
+    /**
+     * A view of the rectangle with the given corner and size. Numbers on its edge have neighbours outside it, which
+     * the view can't show, so AIs should only be given windows with nothing but unknown squares on the edge, such as
+     * {@link #getRevealedWindow()}.
+     *
+     * The view's total mines is the flags and exploded mines in it, plus the expected number of mines among its
+     * unknown squares.
+     */
+    public Window getWindow(int left, int top, int width, int height) {
+        byte[] squares = new byte[width * height];
+        int numUnknown = 0;
+        int numMinesShown = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte square = chunkAt(left + x, top + y).squares[indexInChunk(left + x, top + y)];
+                squares[y * width + x] = square;
+                SquareState state = PlayerView.stateOf(square);
+                if (state == SquareState.UNKNOWN) {
+                    numUnknown++;
+                } else if (state != SquareState.PROBED) {
+                    numMinesShown++;
+                }
+            }
+        }
+
+        PlayerView view = new PlayerView(width, height, numMinesShown + (int) Math.round(numUnknown * mineDensity));
+        for (int index = 0; index < squares.length; index++) {
+            SquareState state = PlayerView.stateOf(squares[index]);
+            if (state == SquareState.PROBED) {
+                view.setBoard(index, PlayerView.numberOf(squares[index]));
+            } else if (state != SquareState.UNKNOWN) {
+                view.setBoard(index, state);
+            }
+        }
+        return new Window(left, top, view);
+    }
+
+    /**
+     * A window over everything that isn't unknown, with a ring of unknown squares around it.
+     */
+    public Window getRevealedWindow() {
+        if (maxX < minX) {
+            return getWindow(-1, -1, 3, 3);
+        }
+        return getWindow(minX - 1, minY - 1, maxX - minX + 3, maxY - minY + 3);
+    }
+
+    @Override
+    public void close() {
+        hotChunks.clear();
+        if (coldChunks != null) {
+            coldChunks.close();
+            coldChunks = null;
+        }
+    }
+
+    private boolean isMine(int x, int y) {
+        if (Math.abs((long) x - startX) <= 1 && Math.abs((long) y - startY) <= 1) {
+            return false;
+        }
+        return chunkAt(x, y).mines.get(indexInChunk(x, y));
+    }
+
+    private int countNeighbouringMines(int x, int y) {
+        int count = 0;
+        for (long nx = x - 1L; nx <= x + 1L; nx++) {
+            for (long ny = y - 1L; ny <= y + 1L; ny++) {
+                if ((nx != x || ny != y) && isOnBoard(nx, ny) && isMine((int) nx, (int) ny)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sets a square. Nothing else is looked up between finding its chunk and changing it, so the chunk can't be
+     * written out in between.
+     */
+    private void setSquare(int x, int y, SquareState state, int number) {
+        Chunk chunk = chunkAt(x, y);
+        chunk.squares[indexInChunk(x, y)] = PlayerView.pack(state, number);
+        chunk.dirty = true;
+        if (state != SquareState.UNKNOWN) {
+            if (maxX < minX) {
+                minX = maxX = x;
+                minY = maxY = y;
+            } else {
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+    }
+
+    private Chunk chunkAt(int x, int y) {
+        int chunkX = x >> CHUNK_BITS;
+        int chunkY = y >> CHUNK_BITS;
+        long key = pack(chunkX, chunkY);
+        Chunk chunk = hotChunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(chunkX, chunkY);
+            if (coldChunks != null) {
+                coldChunks.read(key, chunk.squares);
+            }
+            hotChunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    private static int indexInChunk(int x, int y) {
+        return (y & CHUNK_MASK) << CHUNK_BITS | x & CHUNK_MASK;
+    }
+
+    private static boolean isOnBoard(long x, long y) {
+        return x >= Integer.MIN_VALUE && x <= Integer.MAX_VALUE && y >= Integer.MIN_VALUE && y <= Integer.MAX_VALUE;
+    }
+
+    private static long pack(int x, int y) {
+        return (long) x << 32 | y & 0xffffffffL;
+    }
+
+    private final class Chunk {
+        final BitSet mines = new BitSet(CHUNK_SIZE * CHUNK_SIZE);
+        final byte[] squares = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        // Whether squares differs from what is in the store, or from all unknown if it was never stored.
+        boolean dirty = false;
+
+        Chunk(int chunkX, int chunkY) {
+            SplittableRandom random = new SplittableRandom(
+                    seed ^ chunkX * 0x9E3779B97F4A7C15L ^ chunkY * 0xC2B2AE3D27D4EB4FL);
+            for (int i = 0; i < CHUNK_SIZE * CHUNK_SIZE; i++) {
+                if (random.nextDouble() < mineDensity) {
+                    mines.set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * A rectangle of the board, as a view the AIs can play on. Square (x, y) of the view is square
+     * (left + x, top + y) of the board.
+     */
+    public static class Window {
+        private final int left;
+        private final int top;
+        private final PlayerView view;
+
+        Window(int left, int top, PlayerView view) {
+            this.left = left;
+            this.top = top;
+            this.view = view;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public PlayerView getView() {
+            return view;
+        }
+    }
+}
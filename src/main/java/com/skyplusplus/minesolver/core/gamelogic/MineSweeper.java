@@ -1,6 +1,8 @@
 package com.skyplusplus.minesolver.core.gamelogic;
 
 
+import com.skyplusplus.minesolver.core.ai.Move;
+
 import java.util.*;
 
 /* Class that implements the logic of the minesweeper game */
@@ -9,7 +11,19 @@ public class MineSweeper {
     private int numFlags;
     private int numSquaresExposed;
     private boolean waitingOnProbeToInitialize;
-    private boolean isMine[][];
+    // One bit per square, row by row.
+    private final BitSet isMine;
+    // Mines next to each square, worked out once the mines are placed.
+    private byte[] numbers;
+    private final int width;
+    // Scratch space for the flood fill, and the changes made by the last action. Kept between calls so actions
+    // allocate nothing once they are big enough.
+    private int[] fillStack = new int[16];
+    private final BoardDelta delta = new BoardDelta();
+    private final List<BoardChangeListener> listeners = new ArrayList<>();
+    // Mines are placed from the seed, with the only draws ever made from random.
+    private final long seed;
+    private final Random random;
     private PlayerView playerView;
     private GameState _gameState = GameState.IN_PROGRESS;
 
@@ -23,8 +37,16 @@ public class MineSweeper {
      * @param totalMines number of mines
      */
     public MineSweeper(int width, int height, int totalMines) {
-        this(width, height);
-        if (width * height < totalMines) {
+        this(width, height, totalMines, new Random().nextLong());
+    }
+
+    /**
+     * Same as {@link #MineSweeper(int, int, int)}, but the mines are placed from the given seed. The same seed and first
+     * probe always give the same minefield.
+     */
+    public MineSweeper(int width, int height, int totalMines, long seed) {
+        this(width, height, seed);
+        if ((long) width * height < totalMines) {
             throw new TooManyMinesException();
         }
         if (totalMines < 0) {
@@ -34,11 +56,41 @@ public class MineSweeper {
         waitingOnProbeToInitialize = true;
     }
 
-    private MineSweeper(int width, int height) {
+    private MineSweeper(int width, int height, long seed) {
         if (width < 0 || height < 0) {
             throw new IllegalArgumentException("Both width and height must be greater than 0");
         }
-        this.isMine = new boolean[width][height];
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Board too large: " + width + "x" + height);
+        }
+        this.width = width;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.isMine = new BitSet(width * height);
+    }
+
+    private MineSweeper(MineSweeper original) {
+        this.width = original.width;
+        this.seed = original.seed;
+        this.random = new Random(seed);
+        this.isMine = (BitSet) original.isMine.clone();
+        this.numbers = original.numbers == null ? null : original.numbers.clone();
+        this.playerView = original.playerView.copy();
+        this.numFlags = original.numFlags;
+        this.numSquaresExposed = original.numSquaresExposed;
+        this.waitingOnProbeToInitialize = original.waitingOnProbeToInitialize;
+        this._gameState = original._gameState;
+    }
+
+    /**
+     * A separate game in the same state, for playing ahead on another thread. Listeners aren't copied. Once either game
+     * is changed, views of the copy are of a board of their own, with a lineage different from the original's.
+     *
+     * If the mines aren't placed yet, the copy places them from the same seed as this game, so the same first probe
+     * places the same mines in both, and the same moves keep giving the same results. This game is left as it was.
+     */
+    public MineSweeper copy() {
+        return new MineSweeper(this);
     }
 
     /**
@@ -55,7 +107,7 @@ public class MineSweeper {
      * @param repr The array of strings representing the minefield.
      */
     public MineSweeper(String... repr) {
-        this(repr[0].length(), repr.length);
+        this(repr[0].length(), repr.length, new Random().nextLong());
 
         int totalMines = 0;
         boolean shouldLose = false;
@@ -78,15 +130,15 @@ public class MineSweeper {
                         break;
                     case 'X':
                         playerView.setBoard(BoardCoord.ofValue(x, y), SquareState.FLAGGED);
-                        isMine[x][y] = true;
+                        setMine(BoardCoord.ofValue(x, y));
                         break;
                     case '#': // busted
                         playerView.setBoard(BoardCoord.ofValue(x, y), SquareState.MINE);
-                        isMine[x][y] = true;
+                        setMine(BoardCoord.ofValue(x, y));
                         shouldLose = true;
                         break;
                     case '*':
-                        isMine[x][y] = true;
+                        setMine(BoardCoord.ofValue(x, y));
                         break;
                     case ' ':
                         playerView.setBoard(BoardCoord.ofValue(x, y), SquareState.UNKNOWN);
@@ -102,6 +154,8 @@ public class MineSweeper {
             }
         }
 
+        countNeighbouringMines();
+
         if (shouldLose) {
             loseGame();
         }
@@ -112,52 +166,213 @@ public class MineSweeper {
      * mine. No effect when the game has ended.
      */
     public ProbeResult probe(BoardCoord coord) {
+        return probe(playerView.indexOf(coord));
+    }
+
+    /**
+     * Same as {@link #probe(BoardCoord)}, by square index.
+     */
+    public ProbeResult probe(int index) {
+        delta.clear();
+        return finishAction(probeSquare(index));
+    }
+
+    private ProbeResult probeSquare(int index) {
         if (getGameState() != GameState.IN_PROGRESS) {
             return ProbeResult.NOP;
         }
 
         if (waitingOnProbeToInitialize) {
-            initializeMines(coord);
+            initializeMines(index);
+            countNeighbouringMines();
             waitingOnProbeToInitialize = false;
         }
 
-        if (playerView.getSquareState(coord) != SquareState.UNKNOWN) {
+        if (playerView.getSquareState(index) != SquareState.UNKNOWN) {
             return ProbeResult.NOP;
-        } else if (isMine[coord.getX()][coord.getY()]) {
-            playerView.setBoard(coord, SquareState.MINE);
+        } else if (isMine.get(index)) {
+            setSquare(index, SquareState.MINE);
             loseGame();
             return ProbeResult.LOSE;
-        } else if (playerView.getSquareState(coord) == SquareState.FLAGGED){
-            return ProbeResult.NOP;
         } else {
-            return cascade(coord);
+            fillStack[0] = index;
+            cascade(1);
+            return ProbeResult.OK;
         }
     }
 
-    /*
-     * Internal probe-expand function, and assumes (x,y) is not a mine.
+    /**
+     * Makes a whole move as one action: flags its squares to flag, then probes its squares to probe, in order. The same
+     * as making each flag and probe in turn, but the openings of all the probes are revealed by one flood fill, so
+     * squares in openings that overlap are only looked at once, and listeners hear about the move once.
+     *
+     * @return the changes made by the move, empty if it did nothing.
      */
-    private ProbeResult cascade(BoardCoord coord) {
-        if (playerView.getSquareState(coord) != SquareState.UNKNOWN) {
-            return ProbeResult.NOP;
+    public BoardDelta applyMove(Move move) {
+        delta.clear();
+        for (int index : move.getToFlagIndexes(width)) {
+            flagSquare(index);
+        }
+
+        int[] toProbe = move.getToProbeIndexes(width);
+        if (toProbe.length > 0 && getGameState() == GameState.IN_PROGRESS) {
+            if (waitingOnProbeToInitialize) {
+                initializeMines(toProbe[0]);
+                countNeighbouringMines();
+                waitingOnProbeToInitialize = false;
+            }
+
+            // Probes after the first mine would have done nothing, and probes before it can't have uncovered it.
+            int numSeeds = 0;
+            int mine = -1;
+            for (int index : toProbe) {
+                if (playerView.getSquareState(index) != SquareState.UNKNOWN) {
+                    continue;
+                }
+                if (isMine.get(index)) {
+                    mine = index;
+                    break;
+                }
+                if (numSeeds == fillStack.length) {
+                    fillStack = Arrays.copyOf(fillStack, numSeeds * 2);
+                }
+                fillStack[numSeeds++] = index;
+            }
+            cascade(numSeeds);
+            // The probes before the mine may have won the game, and then the mine's probe would have done nothing.
+            if (mine >= 0 && getGameState() == GameState.IN_PROGRESS) {
+                setSquare(mine, SquareState.MINE);
+                loseGame();
+            }
         }
+        return finishAction(delta).copy();
+    }
 
-        Queue<BoardCoord> dfs = new ArrayDeque<>();
-        dfs.add(coord);
-        while (!dfs.isEmpty()) {
-            BoardCoord thisCoord = dfs.remove();
+    /*
+     * Internal probe-expand function, and assumes the squares are not mines. Reveals the squares at the bottom of
+     * fillStack, and if they are zeros, the zeros connected to them and the squares around those.
+     *
+     * This is a scanline fill: each popped seed grows into the whole run of unknown zeros along its row, which are
+     * revealed together with the squares at either end. The rows above and below are then scanned across the run and
+     * one square further on each side. Squares that aren't unknown zeros are revealed there, and only the first square
+     * of each run of unknown zeros is pushed as a new seed. Revealing a square marks it visited, so nothing is pushed
+     * per neighbour and nothing is allocated per square.
+     */
+    private void cascade(int numSeeds) {
+        int size = numSeeds;
+        while (size > 0) {
+            int seed = fillStack[--size];
+            if (!isUnknownZero(seed)) {
+                reveal(seed);
+                continue;
+            }
 
-            if (playerView.getSquareState(thisCoord) == SquareState.UNKNOWN) {
-                int squareNum = nMinesNeighbouring(thisCoord);
-                numSquaresExposed++;
-                playerView.setBoard(thisCoord, squareNum);
+            int y = seed / width;
+            int rowStart = y * width;
+            int left = seed - rowStart;
+            while (left > 0 && isUnknownZero(rowStart + left - 1)) {
+                left--;
+            }
+            int right = seed - rowStart;
+            while (right < width - 1 && isUnknownZero(rowStart + right + 1)) {
+                right++;
+            }
+            int from = Math.max(0, left - 1);
+            int to = Math.min(width - 1, right + 1);
+            for (int x = from; x <= to; x++) {
+                reveal(rowStart + x);
+            }
 
-                if (squareNum == 0) {
-                    dfs.addAll(playerView.getNeighbours(thisCoord));
+            for (int ny = y - 1; ny <= y + 1; ny += 2) {
+                if (ny < 0 || ny >= getHeight()) {
+                    continue;
+                }
+                boolean inRun = false;
+                for (int x = from; x <= to; x++) {
+                    int neighbour = ny * width + x;
+                    if (isUnknownZero(neighbour)) {
+                        if (!inRun) {
+                            if (size == fillStack.length) {
+                                fillStack = Arrays.copyOf(fillStack, size * 2);
+                            }
+                            fillStack[size++] = neighbour;
+                            inRun = true;
+                        }
+                    } else {
+                        reveal(neighbour);
+                        inRun = false;
+                    }
                 }
             }
         }
-        return ProbeResult.OK;
+    }
+
+    private boolean isUnknownZero(int index) {
+        return numbers[index] == 0 && playerView.getSquareState(index) == SquareState.UNKNOWN;
+    }
+
+    /**
+     * Reveals the square's number, if it is unknown.
+     */
+    private void reveal(int index) {
+        if (playerView.getSquareState(index) == SquareState.UNKNOWN) {
+            playerView.setBoard(index, numbers[index]);
+            delta.add(index, playerView.getPackedSquare(index));
+            numSquaresExposed++;
+        }
+    }
+
+    private void setSquare(int index, SquareState state) {
+        playerView.setBoard(index, state);
+        delta.add(index, playerView.getPackedSquare(index));
+    }
+
+    private <T> T finishAction(T result) {
+        if (!delta.isEmpty()) {
+            for (BoardChangeListener listener : listeners) {
+                listener.onBoardChanged(delta);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexes of the squares revealed by the last probe or sweep, including an exploded mine. Empty if it did nothing.
+     */
+    public int[] getLastRevealed() {
+        int[] retVal = new int[delta.size()];
+        int numRevealed = 0;
+        for (int i = 0; i < delta.size(); i++) {
+            if (delta.getState(i) == SquareState.PROBED || delta.getState(i) == SquareState.MINE) {
+                retVal[numRevealed++] = delta.getIndex(i);
+            }
+        }
+        return Arrays.copyOf(retVal, numRevealed);
+    }
+
+    /**
+     * The changes made by the last probe, sweep, flag or unflag.
+     */
+    public BoardDelta getLastDelta() {
+        return delta.copy();
+    }
+
+    /**
+     * Same as {@link #getLastDelta()}, into a delta the caller reuses.
+     */
+    public void getLastDelta(BoardDelta into) {
+        into.clear();
+        for (int i = 0; i < delta.size(); i++) {
+            into.add(delta.getIndex(i), PlayerView.pack(delta.getState(i), delta.getNumber(i)));
+        }
+    }
+
+    public void addBoardChangeListener(BoardChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeBoardChangeListener(BoardChangeListener listener) {
+        listeners.remove(listener);
     }
 
     /***
@@ -167,21 +382,35 @@ public class MineSweeper {
      * @return result after probing all non-flagged squares around the target square
      */
     public ProbeResult sweep(BoardCoord coord) {
+        return sweep(playerView.indexOf(coord));
+    }
+
+    /**
+     * Same as {@link #sweep(BoardCoord)}, by square index.
+     */
+    public ProbeResult sweep(int index) {
+        delta.clear();
+        return finishAction(sweepSquare(index));
+    }
+
+    private ProbeResult sweepSquare(int index) {
         if (getGameState() != GameState.IN_PROGRESS) {
             return ProbeResult.NOP;
         }
 
-        if (playerView.getSquareState(coord) != SquareState.PROBED) {
+        if (playerView.getSquareState(index) != SquareState.PROBED) {
             return ProbeResult.NOP;
         }
 
-        if (playerView.getSquareMineCount(coord) != nFlagsNeighbouring(coord)) {
+        if (playerView.getSquareMineCount(index) != playerView.countNeighbours(index, SquareState.FLAGGED)) {
             return ProbeResult.NOP;
         }
 
         boolean hasLost = false;
-        for (BoardCoord l: playerView.getNeighbours(coord)) {
-            if (probe(l) == ProbeResult.LOSE) {
+        int[] neighbours = new int[8];
+        int numNeighbours = playerView.getNeighbours(index, neighbours);
+        for (int i = 0; i < numNeighbours; i++) {
+            if (probeSquare(neighbours[i]) == ProbeResult.LOSE) {
                 hasLost = true;
             }
         }
@@ -192,11 +421,20 @@ public class MineSweeper {
      * Flags a square, if unknown.
      */
     public FlagResult flag(BoardCoord coord) {
+        return flag(playerView.indexOf(coord));
+    }
+
+    public FlagResult flag(int index) {
+        delta.clear();
+        return finishAction(flagSquare(index));
+    }
+
+    private FlagResult flagSquare(int index) {
         if (getGameState() != GameState.IN_PROGRESS) {
             return FlagResult.NOP;
         }
-        if (playerView.getSquareState(coord) == SquareState.UNKNOWN) {
-            playerView.setBoard(coord, SquareState.FLAGGED);
+        if (playerView.getSquareState(index) == SquareState.UNKNOWN) {
+            setSquare(index, SquareState.FLAGGED);
             numFlags ++;
             return FlagResult.FLAGGED;
         } else {
@@ -208,11 +446,20 @@ public class MineSweeper {
      * Unflags a square, if flagged.
      */
     public FlagResult unflag(BoardCoord coord) {
+        return unflag(playerView.indexOf(coord));
+    }
+
+    public FlagResult unflag(int index) {
+        delta.clear();
+        return finishAction(unflagSquare(index));
+    }
+
+    private FlagResult unflagSquare(int index) {
         if (getGameState() != GameState.IN_PROGRESS) {
             return FlagResult.NOP;
         }
-        if (playerView.getSquareState(coord) == SquareState.FLAGGED) {
-            playerView.setBoard(coord, SquareState.UNKNOWN);
+        if (playerView.getSquareState(index) == SquareState.FLAGGED) {
+            setSquare(index, SquareState.UNKNOWN);
             numFlags --;
             return FlagResult.UNFLAGGED;
         } else {
@@ -225,15 +472,16 @@ public class MineSweeper {
      */
     @SuppressWarnings("UnusedReturnValue")
     public FlagResult toggleFlag(BoardCoord coord) {
-        if (getGameState() != GameState.IN_PROGRESS) {
-            return FlagResult.NOP;
-        }
-        if (playerView.getSquareState(coord) == SquareState.FLAGGED) {
-            return unflag(coord);
-        } else if (playerView.getSquareState(coord) == SquareState.UNKNOWN) {
-            return flag(coord);
+        return toggleFlag(playerView.indexOf(coord));
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    public FlagResult toggleFlag(int index) {
+        delta.clear();
+        if (playerView.getSquareState(index) == SquareState.FLAGGED) {
+            return finishAction(unflagSquare(index));
         } else {
-            return FlagResult.NOP;
+            return finishAction(flagSquare(index));
         }
     }
 
@@ -256,6 +504,10 @@ public class MineSweeper {
         return playerView.getTotalMines() - numFlags;
     }
 
+    /**
+     * A copy of what the player can see, which later moves don't change. Costs one pointer per 4096 squares, so it can
+     * be taken before every AI call.
+     */
     public PlayerView clonePlayerState() {
         return playerView.copy();
     }
@@ -276,6 +528,17 @@ public class MineSweeper {
         return playerView.getSquareState(coord);
     }
 
+    public SquareState getPlayerSquareState(int index) {
+        return playerView.getSquareState(index);
+    }
+
+    /**
+     * Index of a square, for the methods that take one.
+     */
+    public int indexOf(BoardCoord coord) {
+        return playerView.indexOf(coord);
+    }
+
     public int getProbedSquare(BoardCoord coord) {
         if (playerView.getSquareState(coord) == SquareState.PROBED) {
             return playerView.getSquareMineCount(coord);
@@ -313,48 +576,72 @@ public class MineSweeper {
         return numSquaresExposed;
     }
 
-    private int nMinesNeighbouring(BoardCoord coord) {
-        int nMines = 0;
-        for (BoardCoord l: playerView.getNeighbours(coord)) {
-            if (isMine[l.getX()][l.getY()]) {
-                nMines ++;
-            }
+    /**
+     * Counts every square's neighbouring mines at once, on bitboards, and stores the counts that aren't zero.
+     */
+    private void countNeighbouringMines() {
+        numbers = new byte[playerView.getSquareCount()];
+        Bitboard[] counts = Bitboard.of(getWidth(), getHeight(), isMine).countNeighbours();
+        Bitboard nonZero = Bitboard.nonZero(counts);
+        for (int index = nonZero.nextSetBit(0); index >= 0; index = nonZero.nextSetBit(index + 1)) {
+            numbers[index] = (byte) Bitboard.countAt(counts, index);
         }
-        return nMines;
     }
 
-    private int nFlagsNeighbouring(BoardCoord coord) {
-        return playerView.getNeighbours(coord, SquareState.FLAGGED).size();
-    }
-
-
     /*
-     * Creates random mines after the initial click and allows (x, y) to cascade, if possible.
+     * Creates random mines after the initial click and allows it to cascade, if possible.
+     *
+     * The mines are drawn from the squares outside the 3x3 around the click with Floyd's algorithm, which takes one
+     * random number per mine and nothing per square, so huge boards with few mines are quick. Those squares are
+     * numbered 0 ... n-1 skipping the excluded ones, and isMine doubles as the set of numbers drawn so far.
      */
-    private void initializeMines(BoardCoord startCoord) {
-        ArrayList<BoardCoord> warPlan = new ArrayList<>();
-
-        // Create a list of candidate mines, and randomize them to create the minefield.
-        for (int nx = 0; nx < getWidth(); nx++) {
-            for (int ny = 0; ny < getHeight(); ny++) {
-                warPlan.add(BoardCoord.ofValue(nx, ny));
+    private void initializeMines(int startIndex) {
+        int[] excluded = new int[9];
+        int numExcluded = playerView.getNeighbours(startIndex, excluded);
+        excluded[numExcluded++] = startIndex;
+        Arrays.sort(excluded, 0, numExcluded);
+
+        int numCandidates = playerView.getSquareCount() - numExcluded;
+        int totalMines = playerView.getTotalMines();
+        if (totalMines <= numCandidates) {
+            for (int j = numCandidates - totalMines; j < numCandidates; j++) {
+                int candidate = candidateIndex(random.nextInt(j + 1), excluded, numExcluded);
+                if (isMine.get(candidate)) {
+                    candidate = candidateIndex(j, excluded, numExcluded);
+                }
+                isMine.set(candidate);
             }
+            return;
         }
-        warPlan.removeAll(playerView.getNeighbours(startCoord));
-        warPlan.remove(startCoord);
-        Collections.shuffle(warPlan);
 
-        // If there are a lot of mines, we might have to use direct neighbours of the click as mines.
-        List<BoardCoord> warPlanBackup = playerView.getNeighbours(startCoord);
-        Collections.shuffle(warPlanBackup);
-        warPlan.addAll(warPlanBackup);
-
-        // User even this location itself if the minefield is completely full of mines.
-        warPlan.add(startCoord);
+        // If there are a lot of mines, we might have to use direct neighbours of the click as mines, and even the click
+        // itself if the minefield is completely full of mines.
+        isMine.set(0, playerView.getSquareCount());
+        List<Integer> warPlanBackup = new ArrayList<>();
+        for (int i = 0; i < numExcluded; i++) {
+            if (excluded[i] != startIndex) {
+                warPlanBackup.add(excluded[i]);
+            }
+        }
+        Collections.shuffle(warPlanBackup, random);
+        warPlanBackup.add(startIndex);
+        for (int index : warPlanBackup.subList(totalMines - numCandidates, warPlanBackup.size())) {
+            isMine.clear(index);
+        }
+    }
 
-        for (BoardCoord l: warPlan.subList(0, playerView.getTotalMines())) {
-            isMine[l.getX()][l.getY()] = true;
+    /**
+     * The square numbered i when the excluded squares are skipped.
+     */
+    private static int candidateIndex(int i, int[] excluded, int numExcluded) {
+        for (int e = 0; e < numExcluded && excluded[e] <= i; e++) {
+            i++;
         }
+        return i;
+    }
+
+    private void setMine(BoardCoord coord) {
+        isMine.set(coord.getY() * width + coord.getX());
     }
 
     private void loseGame() {
@@ -3,16 +3,66 @@ package com.skyplusplus.minesolver.core.gamelogic;
 /* Compact class representing what the player can see */
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Squares can be addressed either by {@link BoardCoord} or by index, y * width + x. The index methods create no
+ * objects, and are meant for hot loops.
+ *
+ * Copies are copy on write. The squares and the change log are kept in blocks of 4096, and a copy starts out sharing
+ * all of them with the original. Whichever of the two changes a shared block first copies it, so copying a view costs
+ * one pointer per block, and a change costs at most one block. Neither ever sees the other's changes, so a copy can be
+ * handed to another thread while the original keeps changing.
+ *
+ * Each block also keeps a bitset of its squares in each state, and how many there are, so the squares in a state can
+ * be counted without looking at any, and listed without looking at the others. Every square also keeps how many of
+ * its neighbours are in each state, so counting them costs nothing either.
+ */
 public class PlayerView {
+    // Each square is one byte, row by row: the state's ordinal in the high bits and the number in the low four. A new
+    // block is all UNKNOWN.
+    private static final int NUMBER_BITS = 4;
+    private static final int NUMBER_MASK = (1 << NUMBER_BITS) - 1;
+    private static final SquareState[] STATES = SquareState.values();
+    private static final int BLOCK_BITS = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int WORDS_PER_STATE = BLOCK_SIZE / Long.SIZE;
+
     private final int width;
     private final int height;
-    private final int boardProbedSquares[][];
-    private final SquareState boardSquareStates[][];
+    private final BoardTopology topology;
+    private final int squareCount;
+    private final byte[][] squareBlocks;
+    // For each block, a bitset per state, one after the other, and the number of bits set in each.
+    private final long[][] stateBlocks;
+    private final int[][] stateCountBlocks;
+    // For each square, four bits per state: how many of its neighbours are in that state.
+    private final char[][] neighbourCountBlocks;
+    // Blocks this view may change in place. The rest may be shared with copies.
+    private final boolean[] ownsSquareBlock;
+    private final int[] stateCounts;
+    // Only used while changing the view, which only one thread may do at a time.
+    private final int[] neighbourBuffer = new int[8];
     private final int totalMines;
     private List<BoardCoord> allSquares;
 
+    private static final AtomicLong nextLineage = new AtomicLong();
+    // Copies share the lineage of the view they were copied from, and start with its change log. A later copy of the
+    // same board can then tell an observer of an earlier copy what changed in between. A copy that is changed itself
+    // is no longer a revision of the original board, so it takes a lineage of its own. The log holds square indexes.
+    // Only its last block is ever written, so that is the only one that needs to be owned.
+    //
+    // Replaying more changes than there are squares costs more than looking at the whole board, so older blocks are
+    // dropped, and the log's size is bounded by the board's rather than the length of the game. changeLogBlocks[0]
+    // holds the changes from revision changeLogFirstBlock * BLOCK_SIZE on.
+    private long lineage;
+    private boolean isUnchangedCopy;
+    private int[][] changeLogBlocks;
+    private int changeLogFirstBlock;
+    private int changeLogSize;
+    private boolean ownsChangeLogTail;
+
     public int getWidth() {
         return width;
     }
@@ -21,58 +71,402 @@ public class PlayerView {
         return height;
     }
 
+    /**
+     * Number of squares, one more than the largest index.
+     */
+    public int getSquareCount() {
+        return squareCount;
+    }
+
     @SuppressWarnings("WeakerAccess")
     public int getTotalMines() {
         return totalMines;
     }
 
     public int getSquareMineCount(BoardCoord coord) {
-        return boardProbedSquares[coord.getX()][coord.getY()];
+        return getSquareMineCount(indexOf(coord));
+    }
+
+    public int getSquareMineCount(int index) {
+        return numberOf(getPackedSquare(index));
     }
 
     public void setBoard(BoardCoord coord, int number) {
-        this.boardProbedSquares[coord.getX()][coord.getY()] = number;
-        this.boardSquareStates[coord.getX()][coord.getY()] = SquareState.PROBED;
+        setBoard(indexOf(coord), number);
+    }
+
+    public void setBoard(int index, int number) {
+        if (number < 0 || number > 8) {
+            throw new IllegalArgumentException("Invalid number: " + number);
+        }
+        setPackedSquare(index, pack(SquareState.PROBED, number));
+        logChange(index);
     }
 
     public void setBoard(BoardCoord coord, SquareState state) {
-        this.boardSquareStates[coord.getX()][coord.getY()] = state;
+        setBoard(indexOf(coord), state);
+    }
+
+    public void setBoard(int index, SquareState state) {
+        setPackedSquare(index, pack(state, numberOf(getPackedSquare(index))));
+        logChange(index);
+    }
+
+    private void setPackedSquare(int index, byte square) {
+        if (index < 0 || index >= squareCount) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: " + index);
+        }
+        int block = index >>> BLOCK_BITS;
+        ownBlock(block);
+        int offset = index & BLOCK_MASK;
+        int oldState = squareBlocks[block][offset] >>> NUMBER_BITS;
+        int newState = square >>> NUMBER_BITS;
+        squareBlocks[block][offset] = square;
+        if (oldState != newState) {
+            long bit = 1L << offset;
+            stateBlocks[block][oldState * WORDS_PER_STATE + (offset >>> 6)] &= ~bit;
+            stateBlocks[block][newState * WORDS_PER_STATE + (offset >>> 6)] |= bit;
+            stateCountBlocks[block][oldState]--;
+            stateCountBlocks[block][newState]++;
+            stateCounts[oldState]--;
+            stateCounts[newState]++;
+
+            int change = (1 << newState * NUMBER_BITS) - (1 << oldState * NUMBER_BITS);
+            int numNeighbours = topology.getNeighbours(index, neighbourBuffer);
+            for (int i = 0; i < numNeighbours; i++) {
+                int neighbourBlock = neighbourBuffer[i] >>> BLOCK_BITS;
+                ownBlock(neighbourBlock);
+                neighbourCountBlocks[neighbourBlock][neighbourBuffer[i] & BLOCK_MASK] += change;
+            }
+        }
+    }
+
+    private void ownBlock(int block) {
+        if (!ownsSquareBlock[block]) {
+            squareBlocks[block] = squareBlocks[block].clone();
+            stateBlocks[block] = stateBlocks[block].clone();
+            stateCountBlocks[block] = stateCountBlocks[block].clone();
+            neighbourCountBlocks[block] = neighbourCountBlocks[block].clone();
+            ownsSquareBlock[block] = true;
+        }
+    }
+
+    private void logChange(int index) {
+        if (isUnchangedCopy) {
+            lineage = nextLineage.getAndIncrement();
+            isUnchangedCopy = false;
+        }
+        int block = (changeLogSize >>> BLOCK_BITS) - changeLogFirstBlock;
+        if ((changeLogSize & BLOCK_MASK) == 0 && block > 0 && (long) block << BLOCK_BITS >= squareCount) {
+            // The outer array is never shared, so the oldest block can be dropped in place.
+            System.arraycopy(changeLogBlocks, 1, changeLogBlocks, 0, block - 1);
+            changeLogFirstBlock++;
+            block--;
+            changeLogBlocks[block] = null;
+        }
+        if (block == changeLogBlocks.length) {
+            changeLogBlocks = Arrays.copyOf(changeLogBlocks, Math.max(1, block * 2));
+        }
+        if (changeLogBlocks[block] == null) {
+            changeLogBlocks[block] = new int[BLOCK_SIZE];
+            ownsChangeLogTail = true;
+        } else if (!ownsChangeLogTail) {
+            changeLogBlocks[block] = changeLogBlocks[block].clone();
+            ownsChangeLogTail = true;
+        }
+        changeLogBlocks[block][changeLogSize & BLOCK_MASK] = index;
+        changeLogSize++;
+    }
+
+    public int indexOf(BoardCoord coord) {
+        return indexOf(coord.getX(), coord.getY());
+    }
+
+    public int indexOf(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: (" + x + ", " + y + ")");
+        }
+        return y * width + x;
+    }
+
+    public BoardCoord coordOf(int index) {
+        if (index < 0 || index >= squareCount) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: " + index);
+        }
+        return BoardCoord.ofValue(index % width, index / width);
+    }
+
+    /**
+     * Identifies the board this view is of. Copies have the same lineage as the original until they are changed
+     * themselves, when they get a new one: two views of the same lineage and revision are always the same board, and
+     * the changes since an earlier revision are the ones that led from it to this view.
+     */
+    public long getLineage() {
+        return lineage;
+    }
+
+    /**
+     * Number of changes made to the board so far, including those made before this view was copied.
+     */
+    public int getRevision() {
+        return changeLogSize;
+    }
+
+    /**
+     * The earliest revision the changes are still kept since. Observers that last saw an earlier one have to look at
+     * the whole board again.
+     */
+    public int getOldestRevision() {
+        return changeLogFirstBlock << BLOCK_BITS;
+    }
+
+    /**
+     * Squares changed since the given revision of this board, in order. A square changed more than once is listed
+     * more than once. The revision must be no older than {@link #getOldestRevision()}.
+     */
+    public List<BoardCoord> getChangesSince(int revision) {
+        int[] indexes = getChangedIndexesSince(revision);
+        return new AbstractList<BoardCoord>() {
+            @Override
+            public BoardCoord get(int i) {
+                return coordOf(indexes[i]);
+            }
+
+            @Override
+            public int size() {
+                return indexes.length;
+            }
+        };
+    }
+
+    /**
+     * Same as {@link #getChangesSince}, as square indexes.
+     */
+    public int[] getChangedIndexesSince(int revision) {
+        if (revision < 0 || revision > changeLogSize) {
+            throw new IllegalArgumentException("No revision " + revision + " of this board");
+        }
+        if (revision < getOldestRevision()) {
+            throw new IllegalArgumentException("Changes since revision " + revision + " are no longer kept");
+        }
+        int[] retVal = new int[changeLogSize - revision];
+        for (int i = 0; i < retVal.length; ) {
+            int from = revision + i;
+            int length = Math.min(retVal.length - i, BLOCK_SIZE - (from & BLOCK_MASK));
+            System.arraycopy(changeLogBlocks[(from >>> BLOCK_BITS) - changeLogFirstBlock], from & BLOCK_MASK, retVal,
+                    i, length);
+            i += length;
+        }
+        return retVal;
     }
 
     public PlayerView(int width, int height, int totalMines) {
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Board too large: " + width + "x" + height);
+        }
         this.width = width;
         this.height = height;
+        this.topology = BoardTopology.of(width, height);
         this.totalMines = totalMines;
-        this.boardProbedSquares = new int[width][height];
-        this.boardSquareStates = new SquareState[width][height];
-        for (int i = 0; i < width; i++) {
-            Arrays.fill(this.boardSquareStates[i], SquareState.UNKNOWN);
+        this.lineage = nextLineage.getAndIncrement();
+        this.squareCount = width * height;
+        this.squareBlocks = new byte[(squareCount + BLOCK_SIZE - 1) >>> BLOCK_BITS][];
+        this.stateBlocks = new long[squareBlocks.length][];
+        this.stateCountBlocks = new int[squareBlocks.length][];
+        this.neighbourCountBlocks = new char[squareBlocks.length][];
+        this.ownsSquareBlock = new boolean[squareBlocks.length];
+        for (int block = 0; block < squareBlocks.length; block++) {
+            int blockSize = Math.min(BLOCK_SIZE, squareCount - (block << BLOCK_BITS));
+            squareBlocks[block] = new byte[blockSize];
+            stateBlocks[block] = new long[STATES.length * WORDS_PER_STATE];
+            int unknownStart = SquareState.UNKNOWN.ordinal() * WORDS_PER_STATE;
+            for (int offset = 0; offset < blockSize; offset += Long.SIZE) {
+                int bits = Math.min(Long.SIZE, blockSize - offset);
+                stateBlocks[block][unknownStart + (offset >>> 6)] = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+            }
+            stateCountBlocks[block] = new int[STATES.length];
+            stateCountBlocks[block][SquareState.UNKNOWN.ordinal()] = blockSize;
+            neighbourCountBlocks[block] = new char[blockSize];
+            for (int offset = 0; offset < blockSize; offset++) {
+                neighbourCountBlocks[block][offset] = (char) (topology.getNeighbourCount(block << BLOCK_BITS | offset)
+                        << SquareState.UNKNOWN.ordinal() * NUMBER_BITS);
+            }
+            ownsSquareBlock[block] = true;
         }
+        this.stateCounts = new int[STATES.length];
+        stateCounts[SquareState.UNKNOWN.ordinal()] = squareCount;
+        this.changeLogBlocks = new int[1][];
+    }
+
+    private PlayerView(PlayerView original) {
+        this.width = original.width;
+        this.height = original.height;
+        this.topology = original.topology;
+        this.totalMines = original.totalMines;
+        this.lineage = original.lineage;
+        this.squareCount = original.squareCount;
+        this.squareBlocks = original.squareBlocks.clone();
+        this.stateBlocks = original.stateBlocks.clone();
+        this.stateCountBlocks = original.stateCountBlocks.clone();
+        this.neighbourCountBlocks = original.neighbourCountBlocks.clone();
+        this.ownsSquareBlock = new boolean[squareBlocks.length];
+        this.stateCounts = original.stateCounts.clone();
+        this.changeLogBlocks = original.changeLogBlocks.clone();
+        this.changeLogFirstBlock = original.changeLogFirstBlock;
+        this.changeLogSize = original.changeLogSize;
+        this.isUnchangedCopy = true;
+        this.allSquares = original.allSquares;
     }
 
+    /**
+     * A copy sharing everything with this view until either of them changes.
+     */
     public PlayerView copy() {
-        PlayerView ret = new PlayerView(width, height, totalMines);
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                ret.boardProbedSquares[i][j] = this.boardProbedSquares[i][j];
-                ret.boardSquareStates[i][j] = this.boardSquareStates[i][j];
-            }
-        }
-        return ret;
+        Arrays.fill(ownsSquareBlock, false);
+        ownsChangeLogTail = false;
+        return new PlayerView(this);
+    }
+
+    /**
+     * Which squares are next to which, shared by every board of this size.
+     */
+    public BoardTopology getTopology() {
+        return topology;
     }
 
     public List<BoardCoord> getNeighbours(BoardCoord coord) {
-        return coord.getNeighbours(width, height);
+        return topology.getNeighbours(coord);
     }
 
     public List<BoardCoord> getNeighbours(BoardCoord coord, SquareState state) {
-        List<BoardCoord> retVal = coord.getNeighbours(width, height);
-        retVal.removeIf(loc -> boardSquareStates[loc.getX()][loc.getY()] != state);
+        int index = indexOf(coord);
+        int[] neighbours = new int[8];
+        int numNeighbours = topology.getNeighbours(index, neighbours);
+        List<BoardCoord> retVal = new ArrayList<>(countNeighbours(index, state));
+        for (int i = 0; i < numNeighbours; i++) {
+            if (getSquareState(neighbours[i]) == state) {
+                retVal.add(coordOf(neighbours[i]));
+            }
+        }
         return retVal;
     }
 
+    /**
+     * Puts the indexes of the squares next to a square into the array, which needs room for 8.
+     *
+     * @return number of neighbours.
+     */
+    public int getNeighbours(int index, int[] into) {
+        return topology.getNeighbours(index, into);
+    }
+
+    /**
+     * Number of squares next to a square in the given state.
+     */
+    public int countNeighbours(BoardCoord coord, SquareState state) {
+        return countNeighbours(indexOf(coord), state);
+    }
+
+    /**
+     * Number of squares next to a square in the given state.
+     */
+    public int countNeighbours(int index, SquareState state) {
+        if (index < 0 || index >= squareCount) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: " + index);
+        }
+        return neighbourCountBlocks[index >>> BLOCK_BITS][index & BLOCK_MASK] >>> state.ordinal() * NUMBER_BITS
+                & NUMBER_MASK;
+    }
+
     public SquareState getSquareState(BoardCoord coord) {
-        return boardSquareStates[coord.getX()][coord.getY()];
+        return getSquareState(indexOf(coord));
+    }
+
+    public SquareState getSquareState(int index) {
+        return stateOf(getPackedSquare(index));
+    }
+
+    /**
+     * Number of squares in the given state.
+     */
+    public int getSquareCount(SquareState state) {
+        return stateCounts[state.ordinal()];
+    }
+
+    /**
+     * Indexes of the squares in the given state, in order.
+     */
+    public int[] getSquareIndexes(SquareState state) {
+        int stateOrdinal = state.ordinal();
+        int[] retVal = new int[stateCounts[stateOrdinal]];
+        int size = 0;
+        for (int block = 0; block < squareBlocks.length && size < retVal.length; block++) {
+            if (stateCountBlocks[block][stateOrdinal] == 0) {
+                continue;
+            }
+            long[] bits = stateBlocks[block];
+            for (int word = 0; word < WORDS_PER_STATE; word++) {
+                long remaining = bits[stateOrdinal * WORDS_PER_STATE + word];
+                while (remaining != 0) {
+                    retVal[size++] = block << BLOCK_BITS | word << 6 | Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * The squares in the given state, copied out of the per-state bitsets a block at a time.
+     */
+    public Bitboard getBitboard(SquareState state) {
+        Bitboard retVal = new Bitboard(width, height);
+        for (int block = 0; block < squareBlocks.length; block++) {
+            if (stateCountBlocks[block][state.ordinal()] != 0) {
+                int fromWord = block * WORDS_PER_STATE;
+                retVal.setWords(fromWord, stateBlocks[block], state.ordinal() * WORDS_PER_STATE,
+                        Math.min(WORDS_PER_STATE, (squareCount + Long.SIZE - 1) / Long.SIZE - fromWord));
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * The numbers of the probed squares, bit sliced as in {@link Bitboard}. Other squares are zero.
+     */
+    public Bitboard[] getNumberBitboards() {
+        Bitboard[] retVal = Bitboard.newCounts(width, height);
+        for (int index : getSquareIndexes(SquareState.PROBED)) {
+            int number = getSquareMineCount(index);
+            for (int i = 0; number != 0; i++, number >>>= 1) {
+                if ((number & 1) != 0) {
+                    retVal[i].set(index);
+                }
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * The square as stored, for passing on in the same layout.
+     */
+    byte getPackedSquare(int index) {
+        if (index < 0 || index >= squareCount) {
+            throw new ArrayIndexOutOfBoundsException("Square out of bounds: " + index);
+        }
+        return squareBlocks[index >>> BLOCK_BITS][index & BLOCK_MASK];
+    }
+
+    static byte pack(SquareState state, int number) {
+        return (byte) (state.ordinal() << NUMBER_BITS | number);
+    }
+
+    static SquareState stateOf(byte square) {
+        return STATES[square >>> NUMBER_BITS];
+    }
+
+    static int numberOf(byte square) {
+        return square & NUMBER_MASK;
     }
 
     private void ensureAllSquaresList() {
@@ -92,8 +486,17 @@ public class PlayerView {
         return allSquares;
     }
 
+    /**
+     * Squares in the given state, in the same order as {@link #getAllSquares()}. The list is a new one, free to change.
+     */
     public List<BoardCoord> getAllSquares(SquareState state) {
-        ensureAllSquaresList();
-        return allSquares.stream().filter(coord -> getSquareState(coord) == state).collect(Collectors.toList());
+        int[] indexes = getSquareIndexes(state);
+        List<BoardCoord> retVal = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            retVal.add(coordOf(index));
+        }
+        // Indexes go row by row, and getAllSquares column by column.
+        retVal.sort(Comparator.comparingInt(BoardCoord::getX).thenComparingInt(BoardCoord::getY));
+        return retVal;
     }
 }
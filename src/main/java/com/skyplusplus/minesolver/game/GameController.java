@@ -3,9 +3,14 @@ package com.skyplusplus.minesolver.game;
 import com.skyplusplus.minesolver.core.ai.BoardUpdate;
 import com.skyplusplus.minesolver.core.ai.BoardUpdateEntry;
 import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
+import com.skyplusplus.minesolver.core.ai.Move;
 import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackAI;
 import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.ComponentCounter;
 import com.skyplusplus.minesolver.core.ai.backtrack.FrankensteinAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.PropagatingBackTracker;
+import com.skyplusplus.minesolver.core.ai.backtrack.ParallelBackTracker;
+import com.skyplusplus.minesolver.core.ai.backtrack.RacingAI;
 import com.skyplusplus.minesolver.core.ai.frontier.FrontierAI;
 import com.skyplusplus.minesolver.core.ai.frontier.FrontierVisualizer;
 import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
@@ -30,6 +35,7 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 
@@ -59,14 +65,24 @@ public class GameController {
             new FrontierAI(),
             new FrankensteinAI(),
             new FrontierVisualizer(),
-            new FrontierVisualizer(true)
+            new FrontierVisualizer(true),
+            new BackTrackComboAI(new PropagatingBackTracker()),
+            new BackTrackComboAI(new ParallelBackTracker()),
+            new BackTrackComboAI(new ComponentCounter()),
+            new RacingAI()
     );
 
     private static final int defaultAI = 3;
 
     private BoardUpdate lastAiUpdate = null;
 
+    private int squaresExposedBeforeAI;
+    private int minesMinusFlagsBeforeAI;
+
     private boolean invalidated = true;
+    // Squares the game changed since the last redraw. Unless something else needs the whole board redrawn, only these
+    // are drawn again.
+    private final BitSet changedSquares = new BitSet();
 
     @FXML
     protected Text minesRemainingTextField;
@@ -85,6 +101,8 @@ public class GameController {
     @FXML
     protected CheckBox autoMove;
     @FXML
+    protected CheckBox chainMoves;
+    @FXML
     protected Text winLossText;
     @FXML
     protected TextField AIMsg;
@@ -99,6 +117,31 @@ public class GameController {
 
         redrawBackground(gc);
 
+        for (BoardCoord thisCoord : mineSweeper.getAllSquares()) {
+            drawSquare(gc, thisCoord);
+        }
+        redrawAIInfo(gc);
+    }
+
+    /**
+     * Draws only the squares the game changed since the last redraw. The AI's marks are drawn over the squares, so
+     * while there are any, the whole board is redrawn instead.
+     */
+    private void redrawChangedSquares() {
+        if (lastAiUpdate != null && lastAiUpdate.getEntries() != null) {
+            redraw();
+            return;
+        }
+        GraphicsContext gc = gameCanvas.getGraphicsContext2D();
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        int width = mineSweeper.getWidth();
+        for (int index = changedSquares.nextSetBit(0); index >= 0; index = changedSquares.nextSetBit(index + 1)) {
+            drawSquare(gc, BoardCoord.ofValue(index % width, index / width));
+        }
+    }
+
+    private void drawSquare(GraphicsContext gc, BoardCoord thisCoord) {
         boolean isMouseDown = lastMouseEvent != null && lastMouseEvent.isPrimaryButtonDown();
         BoardCoord lastHoveredSquare = null;
         BoardCoord thisHoveredSquare = null;
@@ -109,33 +152,35 @@ public class GameController {
             thisHoveredSquare = getBoardCoord(lastMouseEvent);
         }
 
+        SquareControlState controlState =
+                getSquareControlState(thisCoord, thisHoveredSquare, lastHoveredSquare, isMouseDown);
+        if (currentUIState != GameUIState.GAME_IN_PROGRESS) {
+            controlState = SquareControlState.NEUTRAL;
+        }
 
-        for (BoardCoord thisCoord : mineSweeper.getAllSquares()) {
+        Color squareColor = getSquareColor(mineSweeper.getPlayerSquareState(thisCoord), controlState);
+        drawBoardRect(gc, thisCoord.getX(), thisCoord.getY(), squareColor);
 
-            SquareControlState controlState =
-                    getSquareControlState(thisCoord, thisHoveredSquare, lastHoveredSquare, isMouseDown);
-            if (currentUIState != GameUIState.GAME_IN_PROGRESS) {
-                controlState = SquareControlState.NEUTRAL;
-            }
+        if (mineSweeper.getPlayerSquareState(thisCoord) == SquareState.PROBED
+                && mineSweeper.getProbedSquare(thisCoord) > 0) {
 
-            Color squareColor = getSquareColor(mineSweeper.getPlayerSquareState(thisCoord), controlState);
-            drawBoardRect(gc, thisCoord.getX(), thisCoord.getY(), squareColor);
-
-            if (mineSweeper.getPlayerSquareState(thisCoord) == SquareState.PROBED
-                    && mineSweeper.getProbedSquare(thisCoord) > 0) {
-
-                Color textColor = getSquareNumberColor(mineSweeper.getProbedSquare(thisCoord));
-                drawTextToSquare(
-                        gc,
-                        Integer.toString(mineSweeper.getProbedSquare(thisCoord)),
-                        thisCoord.getX(),
-                        thisCoord.getY(),
-                        textColor,
-                        0.8
-                );
-            }
+            Color textColor = getSquareNumberColor(mineSweeper.getProbedSquare(thisCoord));
+            drawTextToSquare(
+                    gc,
+                    Integer.toString(mineSweeper.getProbedSquare(thisCoord)),
+                    thisCoord.getX(),
+                    thisCoord.getY(),
+                    textColor,
+                    0.8
+            );
+        }
+    }
+
+    private void onBoardChanged(BoardDelta delta) {
+        // The delta is reused by the game's next action, so only its indexes are kept.
+        for (int i = 0; i < delta.size(); i++) {
+            changedSquares.set(delta.getIndex(i));
         }
-        redrawAIInfo(gc);
     }
 
     private static Color getSquareNumberColor(int probedSquare) {
@@ -295,18 +340,7 @@ public class GameController {
         aiService = new RunAIService(
                 this::updateAIProgress,
                 move -> {
-                    boolean didSomething = false;
-                    for (BoardCoord coord : move.getToFlag()) {
-                        if (mineSweeper.flag(coord) != FlagResult.NOP) {
-                            didSomething = true;
-                        }
-                    }
-                    for (BoardCoord coord : move.getToProbe()) {
-                        if (mineSweeper.probe(coord) != ProbeResult.NOP) {
-                            didSomething = true;
-                        }
-                    }
-                    final boolean finalDidSomething = didSomething;
+                    final boolean finalDidSomething = applyMove(move) || boardChangedSinceAIStarted();
                     stopAI();
                     enterUIGameInProgressState();
                     invalidate();
@@ -316,6 +350,20 @@ public class GameController {
                             onUseAI();
                         }
                     }
+                },
+                certainMove -> {
+                    // While auto playing, act on certain moves while the AI is still working on the rest.
+                    if (autoMove.isSelected() && applyMove(certainMove)) {
+                        if (mineSweeper.getGameState() != GameState.IN_PROGRESS) {
+                            stopAI();
+                            enterUIGameInProgressState();
+                            checkGameState();
+                        }
+                    }
+                },
+                chainMove -> {
+                    // Chained moves were already played on the AI's copy of the game, and are always made.
+                    applyMove(chainMove);
                 }
         );
 
@@ -336,13 +384,29 @@ public class GameController {
             public void handle(long now) {
                 if (invalidated) {
                     redraw();
+                } else if (!changedSquares.isEmpty()) {
+                    redrawChangedSquares();
                 }
                 invalidated = false;
+                changedSquares.clear();
             }
         };
         timer.start();
     }
 
+    private boolean applyMove(Move move) {
+        return !mineSweeper.applyMove(move).isEmpty();
+    }
+
+    /**
+     * Moves can also be made while the AI is running, by early certain moves or chaining.
+     */
+    private boolean boardChangedSinceAIStarted() {
+        return mineSweeper.getNumSquaresExposed() != squaresExposedBeforeAI
+                || mineSweeper.getTotalMinesMinusFlags() != minesMinusFlagsBeforeAI
+                || mineSweeper.getGameState() != GameState.IN_PROGRESS;
+    }
+
     private void invalidate() {
         invalidated = true;
     }
@@ -371,6 +435,10 @@ public class GameController {
     private void onClick(MouseEvent mouseEvent) {
         this.lastMouseEvent = mouseEvent;
         BoardCoord coord = getBoardCoord(mouseEvent);
+        if (aiService.isWorkerRunning()) {
+            // Cancelling only interrupts, so a stopped AI can still be running. Input waits until it has returned.
+            return;
+        }
 
         ProbeResult result = null;
         if (coord.getX() >= 0
@@ -431,6 +499,7 @@ public class GameController {
                     Integer.parseInt(rowsTextField.getText()),
                     Integer.parseInt(minesTextField.getText())
             );
+            mineSweeper.addBoardChangeListener(this::onBoardChanged);
             stopAI();
             enterUIGameInProgressState();
         } catch (NumberFormatException ex) {
@@ -478,7 +547,13 @@ public class GameController {
     @FXML
     protected void onUseAI() {
         if (currentUIState == GameUIState.GAME_IN_PROGRESS) {
-            aiService.calculate(selectedAI, mineSweeper.clonePlayerState());
+            squaresExposedBeforeAI = mineSweeper.getNumSquaresExposed();
+            minesMinusFlagsBeforeAI = mineSweeper.getTotalMinesMinusFlags();
+            if (chainMoves.isSelected()) {
+                aiService.chain(selectedAI, mineSweeper);
+            } else {
+                aiService.calculate(selectedAI, mineSweeper.clonePlayerState());
+            }
             enterAIInProgressState();
         } else if (currentUIState == GameUIState.AI_IN_PROGRESS) {
             stopAI();
@@ -1,14 +1,17 @@
 package com.skyplusplus.minesolver.game;
 
 import com.skyplusplus.minesolver.core.ai.BoardUpdate;
+import com.skyplusplus.minesolver.core.ai.ChainSolver;
 import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
 import com.skyplusplus.minesolver.core.ai.Move;
 import com.skyplusplus.minesolver.core.ai.UpdateHandler;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
 import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
 import javafx.application.Platform;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 class RunAIService extends Service<Void> {
@@ -16,24 +19,57 @@ class RunAIService extends Service<Void> {
     private MineSweeperAI ai;
     private final UpdateHandler<BoardUpdate> updateHandler;
     private final Consumer<Move> onMakeMove;
+    private final Consumer<Move> onCertainMove;
+    private final Consumer<Move> onChainMove;
 
     private PlayerView view;
+    private MineSweeper game;
 
     private int currentAINumber = 0;
+    // Number of tasks whose thread hasn't returned yet. Cancelling only interrupts, so this can outlast the service.
+    private final AtomicInteger runningWorkers = new AtomicInteger();
 
-    RunAIService(UpdateHandler<BoardUpdate> updateHandler, Consumer<Move> onMakeMove) {
+    RunAIService(
+            UpdateHandler<BoardUpdate> updateHandler,
+            Consumer<Move> onMakeMove,
+            Consumer<Move> onCertainMove,
+            Consumer<Move> onChainMove
+    ) {
         this.updateHandler = updateHandler;
         this.onMakeMove = onMakeMove;
+        this.onCertainMove = onCertainMove;
+        this.onChainMove = onChainMove;
         this.setOnFailed(value -> value.getSource().getException().printStackTrace());
     }
 
     void calculate(MineSweeperAI ai, PlayerView view) {
         this.ai = ai;
         this.view = view;
+        this.game = null;
         this.currentAINumber ++;
         this.restart();
     }
 
+    /**
+     * Lets the AI play all the certain moves it can find, then makes its final move as usual. The AI plays on a copy of
+     * the game, and each certain move it plays is handed to onChainMove on the FX thread, to be made on the real game,
+     * which is never touched by the worker.
+     */
+    void chain(MineSweeperAI ai, MineSweeper game) {
+        this.ai = ai;
+        this.view = null;
+        this.game = game.copy();
+        this.currentAINumber ++;
+        this.restart();
+    }
+
+    /**
+     * Whether a worker thread is still running, even one already cancelled.
+     */
+    boolean isWorkerRunning() {
+        return runningWorkers.get() > 0;
+    }
+
     @Override
     public boolean cancel() {
         currentAINumber++;
@@ -43,15 +79,53 @@ class RunAIService extends Service<Void> {
     @Override
     protected Task<Void> createTask() {
         final int thisAINumber = currentAINumber;
+        final MineSweeperAI ai = this.ai;
+        final PlayerView view = this.view;
+        final MineSweeper game = this.game;
         return new Task<Void>() {
             @Override
             protected Void call() {
-                if (view != null) {
+                runningWorkers.incrementAndGet();
+                try {
+                    play();
+                } finally {
+                    runningWorkers.decrementAndGet();
+                }
+                return null;
+            }
+
+            private void play() {
+                if (game != null) {
+                    ChainSolver.Result result = new ChainSolver(ai).solve(game, event ->
+                                Platform.runLater(() -> {
+                                    if (currentAINumber == thisAINumber) {
+                                        updateHandler.handleUpdate(event);
+                                    }
+                                }),
+                            chainMove ->
+                                Platform.runLater(() -> {
+                                    if (currentAINumber == thisAINumber) {
+                                        onChainMove.accept(chainMove);
+                                    }
+                                })
+                            );
+                    Platform.runLater(() -> {
+                        if (currentAINumber == thisAINumber) {
+                            onMakeMove.accept(result.getFinalMove());
+                        }
+                    });
+                } else if (view != null) {
                     Move result = ai.calculate(view, event ->
                                 Platform.runLater(() -> {
                                     if (currentAINumber == thisAINumber) {
                                         updateHandler.handleUpdate(event);
                                     }
+                                }),
+                            certainMove ->
+                                Platform.runLater(() -> {
+                                    if (currentAINumber == thisAINumber) {
+                                        onCertainMove.accept(certainMove);
+                                    }
                                 })
                             );
                     Platform.runLater(() -> {
@@ -60,7 +134,6 @@ class RunAIService extends Service<Void> {
                         }
                     });
                 }
-                return null;
             }
         };
     }
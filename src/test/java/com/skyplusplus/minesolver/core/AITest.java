@@ -16,23 +16,16 @@ public abstract class AITest <T extends MineSweeperAI> {
 
     protected void assertCanWinGame(MineSweeper mineSweeper) {
         while (mineSweeper.getGameState() == GameState.IN_PROGRESS) {
-            boolean didMove = false;
-
             logger.info("\n" + String.join("\n", mineSweeper.toStringArray()));
             Move move = mineSweeperAI.calculate(mineSweeper.clonePlayerState());
 
             for (BoardCoord boardCoord : move.getToFlag()) {
                 logger.info(String.format("Flag: %d %d\n", boardCoord.getX(), boardCoord.getY()));
-                if (mineSweeper.flag(boardCoord) == FlagResult.FLAGGED) {
-                    didMove = true;
-                }
             }
             for (BoardCoord boardCoord : move.getToProbe()) {
                 logger.info(String.format("Probe: %d %d\n", boardCoord.getX(), boardCoord.getY()));
-                if (mineSweeper.probe(boardCoord) == ProbeResult.OK) {
-                    didMove = true;
-                }
             }
+            boolean didMove = !mineSweeper.applyMove(move).isEmpty();
             assertNotEquals(GameState.LOSE, mineSweeper.getGameState());
             assertTrue(didMove); // Should do something at every iteration
         }
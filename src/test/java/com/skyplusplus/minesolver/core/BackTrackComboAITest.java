@@ -1,8 +1,17 @@
 package com.skyplusplus.minesolver.core;
 
+import com.skyplusplus.minesolver.core.ai.Move;
 import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
 import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
 import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 @SuppressWarnings("WeakerAccess")
 public class BackTrackComboAITest extends DeterministicAITest<BackTrackComboAI> {
@@ -89,4 +98,48 @@ public class BackTrackComboAITest extends DeterministicAITest<BackTrackComboAI>
         );
         assertCanWinGame(mineSweeper);
     }
+
+    @Test
+    public void shouldReuseUnchangedGroups() {
+        MineSweeper mineSweeper = new MineSweeper(
+                " 210012 ",
+                "*X1001X*",
+                " 420024 ",
+                "XX1001XX",
+                "22100122",
+                "00000000"
+        );
+        mineSweeperAI.calculate(mineSweeper.clonePlayerState());
+        long misses = mineSweeperAI.getGroupResultCache().getMisses();
+        assertEquals(0, mineSweeperAI.getGroupResultCache().getHits());
+        assertTrue(misses > 0);
+
+        mineSweeperAI.calculate(mineSweeper.clonePlayerState());
+        assertEquals(misses, mineSweeperAI.getGroupResultCache().getMisses());
+        assertEquals(misses, mineSweeperAI.getGroupResultCache().getHits());
+    }
+
+    @Test
+    public void shouldReportCertainMovesPerGroup() {
+        MineSweeper mineSweeper = new MineSweeper(
+                "*1000000",
+                "11000000",
+                "00000122",
+                "00000 X*"
+        );
+        List<Move> certainMoves = new ArrayList<>();
+        Move move = mineSweeperAI.calculate(mineSweeper.clonePlayerState(), null, certainMoves::add);
+
+        // One report per group with something certain in it.
+        assertEquals(2, certainMoves.size());
+
+        List<BoardCoord> toProbe = new ArrayList<>();
+        List<BoardCoord> toFlag = new ArrayList<>();
+        for (Move certainMove : certainMoves) {
+            toProbe.addAll(certainMove.getToProbe());
+            toFlag.addAll(certainMove.getToFlag());
+        }
+        assertEquals(new HashSet<>(move.getToProbe()), new HashSet<>(toProbe));
+        assertEquals(new HashSet<>(move.getToFlag()), new HashSet<>(toFlag));
+    }
 }
@@ -0,0 +1,93 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.frontier.BitMaskSolver;
+import com.skyplusplus.minesolver.core.ai.frontier.CSPSolver;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class BitMaskSolverTest {
+
+    @Test
+    public void shouldSolveUncertainEquations() throws InterruptedException {
+        BitMaskSolver solver = new BitMaskSolver(5);
+        solver.addRule(3, 0, 1, 2, 3, 4);
+        solver.addRule(1, 0, 1);
+        solver.addRule(1, 3, 4);
+
+        BigDecimal[][] solution = new BigDecimal[5 + 1][5];
+        BigDecimal[] totalSolutions = solver.solve(solution);
+        assertArrayEquals(new BigDecimal[]{
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.valueOf(4),
+                BigDecimal.ZERO,
+                BigDecimal.ZERO
+        }, totalSolutions);
+        assertArrayEquals(new BigDecimal[]{
+                BigDecimal.valueOf(2),
+                BigDecimal.valueOf(2),
+                BigDecimal.valueOf(4),
+                BigDecimal.valueOf(2),
+                BigDecimal.valueOf(2)
+        }, solution[3]);
+    }
+
+    @Test
+    public void shouldSolveImpossibleEquations() throws InterruptedException {
+        BitMaskSolver solver = new BitMaskSolver(3);
+        solver.addRule(2, 0, 1);
+        solver.addRule(0, 1, 2);
+
+        BigDecimal[][] solution = new BigDecimal[3 + 1][3];
+        for (BigDecimal total : solver.solve(solution)) {
+            assertEquals(BigDecimal.ZERO, total);
+        }
+    }
+
+    @Test
+    public void shouldAgreeWithFrontierDP() throws InterruptedException {
+        Random random = new Random(34);
+        for (int test = 0; test < 50; test++) {
+            int size = 1 + random.nextInt(14);
+            boolean[] isMine = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                isMine[i] = random.nextInt(3) == 0;
+            }
+
+            BitMaskSolver bitMaskSolver = new BitMaskSolver(size);
+            CSPSolver cspSolver = new CSPSolver(size);
+            for (int start = 0; start < size; start++) {
+                int[] varIds = new int[Math.min(1 + random.nextInt(4), size - start)];
+                int sum = 0;
+                for (int i = 0; i < varIds.length; i++) {
+                    varIds[i] = start + i;
+                    sum += isMine[start + i] ? 1 : 0;
+                }
+                bitMaskSolver.addRule(sum, varIds);
+                cspSolver.addRule(sum, varIds);
+            }
+
+            BigDecimal[][] expected = new BigDecimal[size + 1][size];
+            BigDecimal[][] actual = new BigDecimal[size + 1][size];
+            BigDecimal[] expectedTotals = cspSolver.solveApproximate(expected);
+            BigDecimal[] actualTotals = bitMaskSolver.solve(actual);
+            for (int k = 0; k <= size; k++) {
+                assertEquals(0, expectedTotals[k].compareTo(actualTotals[k]));
+                for (int i = 0; i < size; i++) {
+                    assertEquals(0, expected[k][i].compareTo(actual[k][i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldRejectTooManyVariables() {
+        assertThrows(IllegalArgumentException.class, () -> new BitMaskSolver(BitMaskSolver.MAX_VARIABLES + 1));
+    }
+}
@@ -0,0 +1,107 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
+import com.skyplusplus.minesolver.core.gamelogic.Bitboard;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.BoardTopology;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import com.skyplusplus.minesolver.core.gamelogic.SquareState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class BitboardTest {
+
+    @Test
+    public void shouldCountNeighboursOfEverySquare() {
+        int[][] sizes = {{1, 1}, {1, 70}, {70, 1}, {3, 5}, {63, 3}, {64, 4}, {65, 5}, {200, 37}};
+        Random random = new Random(3);
+        int[] neighbours = new int[8];
+        for (int[] size : sizes) {
+            Bitboard bitboard = new Bitboard(size[0], size[1]);
+            for (int index = 0; index < size[0] * size[1]; index++) {
+                if (random.nextInt(3) == 0) {
+                    bitboard.set(index);
+                }
+            }
+
+            Bitboard[] counts = bitboard.countNeighbours();
+            Bitboard any = bitboard.anyNeighbour();
+            BoardTopology topology = BoardTopology.of(size[0], size[1]);
+            for (int index = 0; index < size[0] * size[1]; index++) {
+                int expected = 0;
+                int numNeighbours = topology.getNeighbours(index, neighbours);
+                for (int i = 0; i < numNeighbours; i++) {
+                    if (bitboard.get(neighbours[i])) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, Bitboard.countAt(counts, index));
+                assertEquals(expected > 0, any.get(index));
+            }
+            assertEquals(Bitboard.nonZero(counts), any);
+        }
+    }
+
+    @Test
+    public void shouldAddAndCompareSlicedNumbers() {
+        Bitboard[] a = Bitboard.newCounts(10, 10);
+        Bitboard[] b = Bitboard.newCounts(10, 10);
+        for (int index = 0; index < 100; index++) {
+            for (int i = 0; i < 3; i++) {
+                if ((index >> i & 1) != 0) {
+                    a[i].set(index);
+                }
+                if ((index / 8 >> i & 1) != 0) {
+                    b[i].set(index);
+                }
+            }
+        }
+        Bitboard[] sum = Bitboard.add(a, b);
+        Bitboard equal = Bitboard.equal(a, b);
+        for (int index = 0; index < 100; index++) {
+            assertEquals(index % 8 + index / 8 % 8, Bitboard.countAt(sum, index));
+            assertEquals(index % 8 == index / 8 % 8, equal.get(index));
+        }
+    }
+
+    @Test
+    public void shouldFindTheSameMovesOnTheWholeBoardAsSquareBySquare() {
+        int numMoves = 0;
+        for (int game = 0; game < 20; game++) {
+            MineSweeper mineSweeper = new MineSweeper(70, 30, 350, game);
+            mineSweeper.probe(BoardCoord.ofValue(35, 15));
+            PlayerView view = mineSweeper.clonePlayerState();
+
+            // A fresh AI looks at the whole board at once; a second look at a changed copy goes square by square.
+            Move whole = new SimpleAI(false).calculate(view);
+            SimpleAI incremental = new SimpleAI(false);
+            PlayerView blank = new PlayerView(70, 30, 350);
+            incremental.calculate(blank);
+            for (int index = 0; index < view.getSquareCount(); index++) {
+                SquareState state = view.getSquareState(index);
+                if (state == SquareState.PROBED) {
+                    blank.setBoard(index, view.getSquareMineCount(index));
+                } else if (state != SquareState.UNKNOWN) {
+                    blank.setBoard(index, state);
+                }
+            }
+            Move bySquare = incremental.calculate(blank.copy());
+
+            int[] expectedProbe = bySquare.getToProbeIndexes(70);
+            int[] expectedFlag = bySquare.getToFlagIndexes(70);
+            Arrays.sort(expectedProbe);
+            Arrays.sort(expectedFlag);
+            assertArrayEquals(expectedProbe, whole.getToProbeIndexes(70));
+            assertArrayEquals(expectedFlag, whole.getToFlagIndexes(70));
+            numMoves += expectedProbe.length + expectedFlag.length;
+        }
+        assertTrue(numMoves > 0);
+    }
+}
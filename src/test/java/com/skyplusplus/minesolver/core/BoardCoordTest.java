@@ -41,4 +41,35 @@ public class BoardCoordTest {
         BoardCoord.ofValue(Integer.MAX_VALUE, Integer.MAX_VALUE);
         BoardCoord.ofValue(Integer.MIN_VALUE, Integer.MIN_VALUE);
     }
+
+    @Test
+    public void shouldCacheValuesOfLargeBoards() throws InterruptedException {
+        assertSame(BoardCoord.ofValue(1000, 2000), BoardCoord.ofValue(1000, 2000));
+
+        BoardCoord[][] seen = new BoardCoord[4][500];
+        Thread[] threads = new Thread[seen.length];
+        for (int t = 0; t < threads.length; t++) {
+            BoardCoord[] seenByThread = seen[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < seenByThread.length; i++) {
+                    seenByThread[i] = BoardCoord.ofValue(3000 + i, 5000 - i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < seen[0].length; i++) {
+            for (BoardCoord[] seenByThread : seen) {
+                assertSame(seen[0][i], seenByThread[i]);
+            }
+        }
+    }
+
+    @Test
+    public void shouldHashDistinctlyOnLargeBoards() {
+        assertNotEquals(BoardCoord.ofValue(0, 100000).hashCode(), BoardCoord.ofValue(1, 0).hashCode());
+        assertNotEquals(BoardCoord.ofValue(65535, 1).hashCode(), BoardCoord.ofValue(1, 65535).hashCode());
+    }
 }
@@ -0,0 +1,61 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.BoardTopology;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class BoardTopologyTest {
+
+    @Test
+    public void shouldFindTheSameNeighboursAsCoordinates() {
+        int[][] sizes = {{1, 1}, {1, 5}, {5, 1}, {2, 2}, {3, 7}, {30, 16}};
+        int[] neighbours = new int[8];
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            BoardTopology topology = BoardTopology.of(width, height);
+            for (int index = 0; index < topology.getSquareCount(); index++) {
+                List<Integer> expected = new ArrayList<>();
+                for (int x = index % width - 1; x <= index % width + 1; x++) {
+                    for (int y = index / width - 1; y <= index / width + 1; y++) {
+                        if (x >= 0 && y >= 0 && x < width && y < height && y * width + x != index) {
+                            expected.add(y * width + x);
+                        }
+                    }
+                }
+
+                int numNeighbours = topology.getNeighbours(index, neighbours);
+                List<Integer> actual = new ArrayList<>();
+                for (int i = 0; i < numNeighbours; i++) {
+                    actual.add(neighbours[i]);
+                }
+                assertEquals(expected, actual);
+                assertEquals(expected.size(), topology.getNeighbourCount(index));
+
+                List<Integer> visited = new ArrayList<>();
+                topology.forEachNeighbour(index, visited::add);
+                assertEquals(expected, visited);
+
+                List<BoardCoord> coords = topology.getNeighbours(BoardCoord.ofValue(index % width, index / width));
+                assertEquals(expected.size(), coords.size());
+                for (int i = 0; i < coords.size(); i++) {
+                    assertEquals((int) expected.get(i), coords.get(i).getY() * width + coords.get(i).getX());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldShareTopologiesOfTheSameSize() {
+        assertSame(BoardTopology.of(30, 16), BoardTopology.of(30, 16));
+        assertNotSame(BoardTopology.of(30, 16), BoardTopology.of(16, 30));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> BoardTopology.of(3, 3).getNeighbourCount(9));
+        assertThrows(IllegalArgumentException.class, () -> BoardTopology.of(-1, 3));
+    }
+}
@@ -0,0 +1,90 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.ChainSolver;
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.backtrack.FrankensteinAI;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
+import com.skyplusplus.minesolver.core.gamelogic.*;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class ChainSolverTest {
+
+    @Test
+    public void shouldStopWhenGuessIsNeeded() {
+        MineSweeper mineSweeper = new MineSweeper(
+                "     ",
+                "     ",
+                "  *  "
+        );
+        ChainSolver.Result result = new ChainSolver(new SimpleAI(false)).solve(mineSweeper);
+
+        assertTrue(result.getActions().isEmpty());
+        assertEquals(1, result.getRounds());
+        assertEquals(GameState.IN_PROGRESS, mineSweeper.getGameState());
+    }
+
+    @Test
+    public void shouldChainSimpleMoves() {
+        MineSweeper mineSweeper = new MineSweeper(
+                "*1000",
+                "11000",
+                "00000",
+                "00111",
+                "001* "
+        );
+        ChainSolver.Result result = new ChainSolver(new SimpleAI(false)).solve(mineSweeper);
+
+        assertEquals(GameState.WIN, mineSweeper.getGameState());
+        assertTrue(result.getFinalMove().getToProbe().isEmpty());
+        assertEquals(2, result.getRounds());
+        assertEquals(3, result.getActions().size());
+        for (ChainSolver.Action action : result.getActions()) {
+            if (action.getType() == ChainSolver.Action.Type.PROBE) {
+                assertEquals(BoardCoord.ofValue(4, 4), action.getBoardCoord());
+            } else {
+                assertEquals(ChainSolver.Action.Type.FLAG, action.getType());
+            }
+        }
+    }
+
+    @RepeatedTest(5)
+    public void shouldOnlyChainSafeMoves() {
+        MineSweeper mineSweeper = new MineSweeper(30, 16, 50);
+        ChainSolver chainSolver = new ChainSolver(new FrankensteinAI());
+
+        while (mineSweeper.getGameState() == GameState.IN_PROGRESS) {
+            ChainSolver.Result result = chainSolver.solve(mineSweeper);
+            for (ChainSolver.Action action : result.getActions()) {
+                assertNotEquals(ChainSolver.Action.Type.EXPLODE, action.getType());
+            }
+
+            Move move = result.getFinalMove();
+            for (BoardCoord coord : move.getToFlag()) {
+                mineSweeper.flag(coord);
+            }
+            for (BoardCoord coord : move.getToProbe()) {
+                mineSweeper.probe(coord);
+            }
+        }
+    }
+
+    @RepeatedTest(5)
+    public void shouldReplayChainedMovesOnTheOriginalGame() {
+        MineSweeper original = new MineSweeper(30, 16, 60);
+        MineSweeper copy = original.copy();
+        assertEquals(ProbeResult.OK, copy.probe(BoardCoord.ofValue(15, 8)));
+        assertEquals(ProbeResult.OK, original.probe(BoardCoord.ofValue(15, 8)));
+        assertArrayEquals(copy.toStringArray(), original.toStringArray());
+
+        MineSweeper chained = original.copy();
+        new ChainSolver(new SimpleAI(false)).solve(chained, null, original::applyMove);
+
+        assertArrayEquals(chained.toStringArray(), original.toStringArray());
+        assertEquals(chained.getGameState(), original.getGameState());
+        assertEquals(chained.getNumSquaresExposed(), original.getNumSquaresExposed());
+    }
+}
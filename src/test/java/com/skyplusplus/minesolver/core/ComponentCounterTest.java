@@ -0,0 +1,79 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.ComponentCounter;
+import com.skyplusplus.minesolver.core.ai.backtrack.MineCounts;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SuppressWarnings("WeakerAccess")
+public class ComponentCounterTest extends BackTrackComboAITest {
+
+    @Override
+    protected BackTrackComboAI getAI() {
+        return new BackTrackComboAI(new ComponentCounter());
+    }
+
+    @Test
+    public void shouldCountTheSameAsEnumerating() throws InterruptedException {
+        PlayerView view = new MineSweeper(
+                " * * * *  * *  **** ** ***",
+                "11212121111211123322222232",
+                "00000000000000000000000000"
+        ).clonePlayerState();
+        List<BoardCoord> group = BackTrackAI.getNeighboursOfVisibleNumbers(view);
+
+        MineCounts expected = new BackTrackAI().countCombinationsOfMines(view, group);
+        for (int cacheSize : new int[]{0, 1, ComponentCounter.DEFAULT_MAX_CACHED_COMPONENTS}) {
+            MineCounts actual = new ComponentCounter(cacheSize).countCombinationsOfMines(view, group);
+            for (int mineCount = 0; mineCount <= group.size(); mineCount++) {
+                assertEquals(expected.getSolutions(mineCount), actual.getSolutions(mineCount));
+                for (int i = 0; i < group.size(); i++) {
+                    assertEquals(expected.getTimesMine(mineCount, i), actual.getTimesMine(mineCount, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldCountGroupsTooBigToEnumerate() throws InterruptedException {
+        // Each 1 sees the square above it, and shares the pair of squares on either side with the next 1. Counting
+        // along the row by whether the pair after each 1 has a mine gives about 2^80 solutions.
+        int numbers = 80;
+        StringBuilder top = new StringBuilder("*");
+        StringBuilder bottom = new StringBuilder("1");
+        for (int i = 1; i < numbers; i++) {
+            top.append(" *");
+            bottom.append(" 1");
+        }
+        PlayerView view = new MineSweeper(top.toString(), bottom.toString()).clonePlayerState();
+        List<BoardCoord> group = BackTrackAI.getNeighboursOfVisibleNumbers(view);
+
+        BigInteger pairEmpty = BigInteger.ONE;
+        BigInteger pairHasMine = BigInteger.valueOf(2);
+        for (int i = 1; i < numbers - 1; i++) {
+            BigInteger nextPairHasMine = pairEmpty.shiftLeft(1);
+            pairEmpty = pairEmpty.add(pairHasMine);
+            pairHasMine = nextPairHasMine;
+        }
+
+        MineCounts counts = new ComponentCounter().countCombinationsOfMines(view, group);
+        assertEquals(pairEmpty.add(pairHasMine), counts.getTotalSolutions());
+        // Every solution with k mines has k variables as mines.
+        for (int mineCount = 0; mineCount <= group.size(); mineCount++) {
+            BigInteger mines = BigInteger.ZERO;
+            for (int i = 0; i < group.size(); i++) {
+                mines = mines.add(counts.getTimesMine(mineCount, i));
+            }
+            assertEquals(counts.getSolutions(mineCount).multiply(BigInteger.valueOf(mineCount)), mines);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.simple.LocalPatternAI;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.GameState;
+import com.skyplusplus.minesolver.core.gamelogic.InfiniteMineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.ProbeResult;
+import com.skyplusplus.minesolver.core.gamelogic.SquareState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class InfiniteMineSweeperTest {
+
+    @Test
+    public void shouldGenerateTheSameBoardFromTheSameSeed() {
+        try (InfiniteMineSweeper first = new InfiniteMineSweeper(5, 0.15);
+             InfiniteMineSweeper second = new InfiniteMineSweeper(5, 0.15)) {
+            assertEquals(ProbeResult.OK, first.probe(-3, 7));
+            assertEquals(ProbeResult.OK, second.probe(-3, 7));
+            assertEquals(0, first.getSquareMineCount(-3, 7));
+            assertTrue(first.getNumSquaresExposed() >= 9);
+            assertEquals(first.getNumSquaresExposed(), second.getNumSquaresExposed());
+            for (int x = -40; x < 40; x++) {
+                for (int y = -40; y < 40; y++) {
+                    assertEquals(first.getSquareState(x, y), second.getSquareState(x, y));
+                    assertEquals(first.getSquareMineCount(x, y), second.getSquareMineCount(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldKeepChangesToChunksOutOfMemory() {
+        try (InfiniteMineSweeper mineSweeper = new InfiniteMineSweeper(1, 0.2, 2)) {
+            for (int i = 0; i < 10; i++) {
+                mineSweeper.flag(i * InfiniteMineSweeper.CHUNK_SIZE, -i * InfiniteMineSweeper.CHUNK_SIZE);
+            }
+            assertEquals(2, mineSweeper.getNumHotChunks());
+            assertTrue(mineSweeper.getNumColdChunks() >= 8);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(
+                        SquareState.FLAGGED,
+                        mineSweeper.getSquareState(i * InfiniteMineSweeper.CHUNK_SIZE, -i * InfiniteMineSweeper.CHUNK_SIZE)
+                );
+                assertEquals(
+                        SquareState.UNKNOWN,
+                        mineSweeper.getSquareState(i * InfiniteMineSweeper.CHUNK_SIZE + 1, 0)
+                );
+            }
+            assertEquals(10, mineSweeper.getNumFlags());
+        }
+    }
+
+    @Test
+    public void shouldOnlyAcceptDensitiesWithFiniteOpenings() {
+        assertThrows(IllegalArgumentException.class, () -> new InfiniteMineSweeper(0, 0.05));
+        assertThrows(IllegalArgumentException.class, () -> new InfiniteMineSweeper(0, 1));
+    }
+
+    @Test
+    public void shouldPlayCertainMovesOnTheRevealedWindow() {
+        try (InfiniteMineSweeper mineSweeper = new InfiniteMineSweeper(3, 0.16, 16)) {
+            mineSweeper.probe(0, 0);
+            SimpleAI simpleAI = new SimpleAI(false);
+            LocalPatternAI localPatternAI = new LocalPatternAI();
+            for (int round = 0; round < 30; round++) {
+                InfiniteMineSweeper.Window window = mineSweeper.getRevealedWindow();
+                Move move = simpleAI.calculate(window.getView());
+                if (move.isEmpty()) {
+                    move = localPatternAI.calculate(window.getView());
+                }
+                if (move.isEmpty()) {
+                    break;
+                }
+                for (BoardCoord coord : move.getToFlag()) {
+                    mineSweeper.flag(window.getLeft() + coord.getX(), window.getTop() + coord.getY());
+                }
+                for (BoardCoord coord : move.getToProbe()) {
+                    mineSweeper.probe(window.getLeft() + coord.getX(), window.getTop() + coord.getY());
+                }
+                assertEquals(GameState.IN_PROGRESS, mineSweeper.getGameState());
+            }
+            assertTrue(mineSweeper.getNumFlags() > 0);
+        }
+    }
+}
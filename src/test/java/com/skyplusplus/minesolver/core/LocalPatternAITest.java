@@ -0,0 +1,94 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.simple.LocalPatternAI;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.GameState;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.ProbeResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class LocalPatternAITest extends AITest<LocalPatternAI> {
+
+    @BeforeEach
+    public void setup() {
+        mineSweeperAI = new LocalPatternAI();
+    }
+
+    @Test
+    public void shouldSolveOneTwoOne() {
+        MineSweeper state = new MineSweeper(
+                " * * ",
+                "11211",
+                "00000"
+        );
+
+        Move move = mineSweeperAI.calculate(state.clonePlayerState());
+        assertEquals(new HashSet<>(Arrays.asList(
+                BoardCoord.ofValue(1, 0),
+                BoardCoord.ofValue(3, 0)
+        )), new HashSet<>(move.getToFlag()));
+        assertEquals(new HashSet<>(Arrays.asList(
+                BoardCoord.ofValue(0, 0),
+                BoardCoord.ofValue(2, 0),
+                BoardCoord.ofValue(4, 0)
+        )), new HashSet<>(move.getToProbe()));
+    }
+
+    @Test
+    public void shouldSolveOneTwoTwoOne() {
+        MineSweeper state = new MineSweeper(
+                " ** ",
+                "1221",
+                "0000"
+        );
+
+        Move move = mineSweeperAI.calculate(state.clonePlayerState());
+        assertEquals(new HashSet<>(Arrays.asList(
+                BoardCoord.ofValue(1, 0),
+                BoardCoord.ofValue(2, 0)
+        )), new HashSet<>(move.getToFlag()));
+    }
+
+    @Test
+    public void shouldProbeOutsideASubset() {
+        // The 1 at the bottom left only sees the two squares above it, which the 1 next to it also sees. So the third
+        // square above that 1 is safe.
+        MineSweeper state = new MineSweeper(
+                "*   ",
+                "11  ",
+                "0000"
+        );
+
+        Move move = mineSweeperAI.calculate(state.clonePlayerState());
+        assertTrue(move.getToProbe().contains(BoardCoord.ofValue(2, 0)));
+        assertTrue(move.getToFlag().isEmpty());
+    }
+
+    @RepeatedTest(10)
+    public void shouldOnlyMakeSafeMoves() {
+        MineSweeper mineSweeper = new MineSweeper(30, 16, 99);
+        SimpleAI guesser = new SimpleAI();
+
+        while (mineSweeper.getGameState() == GameState.IN_PROGRESS) {
+            Move move = mineSweeperAI.calculate(mineSweeper.clonePlayerState());
+            if (move.getToProbe().isEmpty() && move.getToFlag().isEmpty()) {
+                guesser.calculate(mineSweeper.clonePlayerState()).getToProbe().forEach(mineSweeper::probe);
+                continue;
+            }
+            move.getToFlag().forEach(mineSweeper::flag);
+            for (BoardCoord coord : move.getToProbe()) {
+                assertNotEquals(ProbeResult.LOSE, mineSweeper.probe(coord));
+            }
+        }
+    }
+}
@@ -1,9 +1,20 @@
 package com.skyplusplus.minesolver.core;
 
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
 import com.skyplusplus.minesolver.core.gamelogic.*;
+import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +45,51 @@ public class MineSweeperTest {
         assertEquals(10, mineSweeper.getTotalMines());
     }
 
+    @Test
+    public void shouldPlaceMinesFromSeed() {
+        for (int totalMines : new int[]{10, 20, 40, 54, 60, 62}) {
+            boolean[] firstGame = findMines(8, 8, totalMines, 42, 3, 4);
+            int numMines = 0;
+            for (int index = 0; index < firstGame.length; index++) {
+                if (firstGame[index]) {
+                    numMines++;
+                }
+            }
+            assertEquals(totalMines, numMines);
+            assertFalse(firstGame[4 * 8 + 3]);
+            if (totalMines <= 8 * 8 - 9) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        assertFalse(firstGame[(4 + dy) * 8 + 3 + dx]);
+                    }
+                }
+            }
+            assertArrayEquals(firstGame, findMines(8, 8, totalMines, 42, 3, 4));
+        }
+    }
+
+    @Test
+    public void shouldPlaceMinesQuicklyOnHugeBoards() {
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            MineSweeper mineSweeper = new MineSweeper(5000, 5000, 5000000, 7);
+            assertEquals(ProbeResult.OK, mineSweeper.probe(BoardCoord.ofValue(2500, 2500)));
+            assertEquals(0, mineSweeper.getProbedSquare(BoardCoord.ofValue(2500, 2500)));
+        });
+    }
+
+    /**
+     * Which squares are mines in the seeded game, found by probing each one in a fresh copy of it.
+     */
+    private boolean[] findMines(int width, int height, int totalMines, long seed, int startX, int startY) {
+        boolean[] retVal = new boolean[width * height];
+        for (int index = 0; index < retVal.length; index++) {
+            MineSweeper mineSweeper = new MineSweeper(width, height, totalMines, seed);
+            mineSweeper.probe(BoardCoord.ofValue(startX, startY));
+            retVal[index] = mineSweeper.probe(index) == ProbeResult.LOSE;
+        }
+        return retVal;
+    }
+
     @Test
     public void shouldNotInitializeWithTooManyMines() {
         assertThrows(
@@ -534,6 +590,143 @@ public class MineSweeperTest {
         assertEquals(FlagResult.NOP, mineSweeper.unflag(BoardCoord.ofValue(0, 1)));
     }
 
+    @Test
+    public void shouldProbeAndFlagByIndex() {
+        MineSweeper mineSweeper = new MineSweeper(
+                "*  **",
+                "     ",
+                "     ",
+                "     ",
+                "**   "
+        );
+
+        assertEquals(ProbeResult.OK, mineSweeper.probe(4 * 5 + 4));
+        assertEquals(FlagResult.FLAGGED, mineSweeper.flag(mineSweeper.indexOf(BoardCoord.ofValue(0, 0))));
+        assertEquals(ProbeResult.OK, mineSweeper.sweep(5));
+        assertBoardState(mineSweeper, GameState.IN_PROGRESS,
+                "X1   ",
+                "11122",
+                "00000",
+                "22100",
+                "  100");
+        assertEquals(SquareState.FLAGGED, mineSweeper.getPlayerSquareState(0));
+    }
+
+    @RepeatedTest(20)
+    public void shouldCascadeLikeABreadthFirstSearch() {
+        Random random = new Random();
+        int width = 1 + random.nextInt(30);
+        int height = 1 + random.nextInt(30);
+        boolean[][] isMine = new boolean[width][height];
+        String[] repr = new String[height];
+        for (int y = 0; y < height; y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < width; x++) {
+                isMine[x][y] = random.nextInt(8) == 0;
+                row.append(isMine[x][y] ? '*' : ' ');
+            }
+            repr[y] = row.toString();
+        }
+        int startX = random.nextInt(width);
+        int startY = random.nextInt(height);
+        isMine[startX][startY] = false;
+        repr[startY] = repr[startY].substring(0, startX) + ' ' + repr[startY].substring(startX + 1);
+        MineSweeper mineSweeper = new MineSweeper(repr);
+
+        // The same thing, one square at a time.
+        char[][] expected = new char[height][width];
+        for (char[] row : expected) {
+            Arrays.fill(row, ' ');
+        }
+        Deque<BoardCoord> toVisit = new ArrayDeque<>();
+        toVisit.add(BoardCoord.ofValue(startX, startY));
+        int numRevealed = 0;
+        while (!toVisit.isEmpty()) {
+            BoardCoord coord = toVisit.remove();
+            if (expected[coord.getY()][coord.getX()] != ' ') {
+                continue;
+            }
+            int number = 0;
+            for (BoardCoord neighbour : coord.getNeighbours(width, height)) {
+                if (isMine[neighbour.getX()][neighbour.getY()]) {
+                    number++;
+                }
+            }
+            expected[coord.getY()][coord.getX()] = (char) ('0' + number);
+            numRevealed++;
+            if (number == 0) {
+                toVisit.addAll(coord.getNeighbours(width, height));
+            }
+        }
+
+        mineSweeper.probe(BoardCoord.ofValue(startX, startY));
+        for (int y = 0; y < height; y++) {
+            assertEquals(new String(expected[y]), mineSweeper.toStringArray()[y]);
+        }
+        assertEquals(numRevealed, mineSweeper.getLastRevealed().length);
+        assertEquals(numRevealed, mineSweeper.getNumSquaresExposed());
+    }
+
+    @Test
+    public void shouldCascadeQuicklyOnHugeBoards() {
+        assertTimeout(Duration.ofSeconds(5), () -> {
+            MineSweeper mineSweeper = new MineSweeper(3000, 3000, 1000, 11);
+            assertEquals(ProbeResult.OK, mineSweeper.probe(BoardCoord.ofValue(1500, 1500)));
+            assertTrue(mineSweeper.getNumSquaresExposed() > 3000 * 3000 / 2);
+            assertEquals(mineSweeper.getNumSquaresExposed(), mineSweeper.getLastRevealed().length);
+        });
+    }
+
+    @Test
+    public void shouldReportTheChangesOfEachAction() {
+        MineSweeper mineSweeper = new MineSweeper(
+                "*  **",
+                "     ",
+                "     ",
+                "     ",
+                "**   "
+        );
+        List<BoardDelta> deltas = new ArrayList<>();
+        mineSweeper.addBoardChangeListener(delta -> deltas.add(delta.copy()));
+        PlayerView before = mineSweeper.clonePlayerState();
+
+        mineSweeper.probe(BoardCoord.ofValue(4, 4));
+        assertEquals(1, deltas.size());
+        assertEquals(mineSweeper.getNumSquaresExposed(), deltas.get(0).size());
+        int index = mineSweeper.indexOf(BoardCoord.ofValue(0, 1));
+        boolean found = false;
+        for (int i = 0; i < deltas.get(0).size(); i++) {
+            assertEquals(SquareState.PROBED, deltas.get(0).getState(i));
+            if (deltas.get(0).getIndex(i) == index) {
+                assertEquals(1, deltas.get(0).getNumber(i));
+                found = true;
+            }
+        }
+        assertTrue(found);
+
+        // Nothing changes, so nothing is reported.
+        mineSweeper.probe(BoardCoord.ofValue(4, 4));
+        assertEquals(1, deltas.size());
+        assertTrue(mineSweeper.getLastDelta().isEmpty());
+
+        mineSweeper.toggleFlag(BoardCoord.ofValue(0, 0));
+        assertEquals(2, deltas.size());
+        assertEquals(1, deltas.get(1).size());
+        assertEquals(SquareState.FLAGGED, deltas.get(1).getState(0));
+        BoardDelta pooled = new BoardDelta();
+        mineSweeper.getLastDelta(pooled);
+        assertEquals(0, pooled.getIndex(0));
+
+        for (BoardDelta delta : deltas) {
+            delta.applyTo(before);
+        }
+        PlayerView after = mineSweeper.clonePlayerState();
+        for (int i = 0; i < after.getSquareCount(); i++) {
+            assertEquals(after.getSquareState(i), before.getSquareState(i));
+            assertEquals(after.getSquareMineCount(i), before.getSquareMineCount(i));
+        }
+    }
+
     @Test
     public void shouldSerializeWithoutHiddenMines() {
 
@@ -564,4 +757,107 @@ public class MineSweeperTest {
 
         assertEquals(gameState, target.getGameState());
     }
+
+    @RepeatedTest(10)
+    public void shouldApplyAMoveLikeItsProbesOneByOne() {
+        long seed = new Random().nextLong();
+        MineSweeper batched = new MineSweeper(40, 30, 150, seed);
+        MineSweeper oneByOne = new MineSweeper(40, 30, 150, seed);
+        Random random = new Random(seed);
+        List<BoardDelta> heard = new ArrayList<>();
+        batched.addBoardChangeListener(delta -> heard.add(delta.copy()));
+
+        while (batched.getGameState() == GameState.IN_PROGRESS) {
+            List<BoardCoord> toProbe = new ArrayList<>();
+            List<BoardCoord> toFlag = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                toProbe.add(BoardCoord.ofValue(random.nextInt(40), random.nextInt(30)));
+            }
+            toFlag.add(BoardCoord.ofValue(random.nextInt(40), random.nextInt(30)));
+
+            int numHeard = heard.size();
+            BoardDelta delta = batched.applyMove(new Move(toProbe, toFlag));
+            for (BoardCoord coord : toFlag) {
+                oneByOne.flag(coord);
+            }
+            for (BoardCoord coord : toProbe) {
+                oneByOne.probe(coord);
+            }
+
+            assertEquals(oneByOne.getGameState(), batched.getGameState());
+            assertArrayEquals(oneByOne.toStringArray(), batched.toStringArray());
+            assertEquals(oneByOne.getNumSquaresExposed(), batched.getNumSquaresExposed());
+            assertEquals(delta.isEmpty() ? numHeard : numHeard + 1, heard.size());
+
+            // Every square is in the delta once, as it is now.
+            boolean[] seen = new boolean[40 * 30];
+            for (int i = 0; i < delta.size(); i++) {
+                assertFalse(seen[delta.getIndex(i)]);
+                seen[delta.getIndex(i)] = true;
+                assertEquals(batched.getPlayerSquareState(delta.getIndex(i)), delta.getState(i));
+            }
+        }
+        assertTrue(batched.applyMove(new Move(
+                Collections.singletonList(BoardCoord.ofValue(0, 0)), null)).isEmpty());
+
+        // A move that wins before it reaches a mine wins, as its probes would one by one.
+        oneByOne = new MineSweeper("  *");
+        assertEquals(ProbeResult.OK, oneByOne.probe(BoardCoord.ofValue(0, 0)));
+        assertEquals(ProbeResult.NOP, oneByOne.probe(BoardCoord.ofValue(2, 0)));
+        assertEquals(GameState.WIN, oneByOne.getGameState());
+        batched = new MineSweeper("  *");
+        BoardDelta delta = batched.applyMove(new Move(
+                Arrays.asList(BoardCoord.ofValue(0, 0), BoardCoord.ofValue(2, 0)), null));
+        assertEquals(GameState.WIN, batched.getGameState());
+        assertArrayEquals(oneByOne.toStringArray(), batched.toStringArray());
+        assertEquals(2, delta.size());
+    }
+
+    @Test
+    public void shouldNotMistakeAChangedCopyForTheOriginal() {
+        SimpleAI reused = new SimpleAI(false);
+        int numCompared = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            MineSweeper original = new MineSweeper(16, 16, 40, seed);
+            original.probe(BoardCoord.ofValue(8, 8));
+            MineSweeper copy = original.copy();
+            Move move = new SimpleAI(false).calculate(copy.clonePlayerState());
+            if (copy.applyMove(move).isEmpty()) {
+                continue;
+            }
+
+            // Change the original in another way, up to the same number of changes as the copy.
+            int unknown = original.clonePlayerState().getSquareIndexes(SquareState.UNKNOWN)[0];
+            while (original.clonePlayerState().getRevision() < copy.clonePlayerState().getRevision()) {
+                original.toggleFlag(unknown);
+            }
+            PlayerView copyView = copy.clonePlayerState();
+            PlayerView originalView = original.clonePlayerState();
+            assertNotEquals(copyView.getLineage(), originalView.getLineage());
+
+            reused.calculate(copyView);
+            Move expected = new SimpleAI(false).calculate(originalView);
+            Move actual = reused.calculate(originalView);
+            assertEquals(new HashSet<>(expected.getToProbe()), new HashSet<>(actual.getToProbe()));
+            assertEquals(new HashSet<>(expected.getToFlag()), new HashSet<>(actual.getToFlag()));
+            numCompared++;
+        }
+        assertTrue(numCompared > 0);
+    }
+
+    @Test
+    public void shouldKeepTheSeededMinesWhenCopiedBeforeTheFirstProbe() {
+        MineSweeper copied = new MineSweeper(30, 16, 99, 41);
+        MineSweeper copy = copied.copy();
+        MineSweeper untouched = new MineSweeper(30, 16, 99, 41);
+
+        for (MineSweeper mineSweeper : Arrays.asList(copied, copy, untouched)) {
+            mineSweeper.probe(BoardCoord.ofValue(3, 4));
+            for (int x = 0; x < 30; x++) {
+                mineSweeper.probe(BoardCoord.ofValue(x, 15));
+            }
+        }
+        assertArrayEquals(untouched.toStringArray(), copied.toStringArray());
+        assertArrayEquals(untouched.toStringArray(), copy.toStringArray());
+    }
 }
@@ -0,0 +1,50 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.MineCounts;
+import com.skyplusplus.minesolver.core.ai.backtrack.ParallelBackTracker;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SuppressWarnings("WeakerAccess")
+public class ParallelBackTrackerTest extends BackTrackComboAITest {
+
+    @Override
+    protected BackTrackComboAI getAI() {
+        return new BackTrackComboAI(new ParallelBackTracker());
+    }
+
+    @Test
+    public void shouldCountTheSameAsSerial() throws InterruptedException {
+        PlayerView view = new MineSweeper(
+                " * * * *  * *  **** ** ***",
+                "11212121111211123322222232",
+                "00000000000000000000000000"
+        ).clonePlayerState();
+        List<BoardCoord> group = BackTrackAI.getNeighboursOfVisibleNumbers(view);
+
+        MineCounts expected = new BackTrackAI().countCombinationsOfMines(view, group);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int splitDepth = 0; splitDepth <= 8; splitDepth++) {
+                MineCounts actual = new ParallelBackTracker(pool, splitDepth).countCombinationsOfMines(view, group);
+                for (int mineCount = 0; mineCount <= group.size(); mineCount++) {
+                    assertEquals(expected.getSolutions(mineCount), actual.getSolutions(mineCount));
+                    for (int i = 0; i < group.size(); i++) {
+                        assertEquals(expected.getTimesMine(mineCount, i), actual.getTimesMine(mineCount, i));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.PatternDatabase;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class PatternDatabaseTest {
+
+    private static final String[] ONE_TWO_ONE = {
+            " * * ",
+            "11211",
+            "00000"
+    };
+
+    // The same 1-2-1, rotated and moved somewhere else on a bigger board.
+    private static final String[] ONE_TWO_ONE_ROTATED = {
+            "000001 ",
+            "000001*",
+            "000002 ",
+            "000001*",
+            "000001 "
+    };
+
+    @Test
+    public void shouldMatchRotatedAndTranslatedGroups() {
+        PlayerView view = new MineSweeper(ONE_TWO_ONE).clonePlayerState();
+        PlayerView rotated = new MineSweeper(ONE_TWO_ONE_ROTATED).clonePlayerState();
+
+        PatternDatabase database = new PatternDatabase();
+        database.record(view, solve(view).get(0));
+
+        List<BoardCoord> rotatedGroup = Arrays.asList(
+                BoardCoord.ofValue(6, 4),
+                BoardCoord.ofValue(6, 3),
+                BoardCoord.ofValue(6, 2),
+                BoardCoord.ofValue(6, 1),
+                BoardCoord.ofValue(6, 0)
+        );
+        assertTrue(database.contains(rotated, rotatedGroup));
+        BackTrackComboAI.GroupResult expected = solve(rotated).get(0);
+        BackTrackComboAI.GroupResult actual = database.lookup(rotated, rotatedGroup);
+        for (int i = 0; i < rotatedGroup.size(); i++) {
+            int expectedIndex = expected.boardCoords.indexOf(rotatedGroup.get(i));
+            for (int mineCount = 0; mineCount <= rotatedGroup.size(); mineCount++) {
+                assertEquals(
+                        0,
+                        expected.groupResults.get(mineCount).squareResults.get(expectedIndex)
+                                .compareTo(actual.groupResults.get(mineCount).squareResults.get(i))
+                );
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotMatchDifferentNumbers() {
+        PlayerView view = new MineSweeper(ONE_TWO_ONE).clonePlayerState();
+        PlayerView other = new MineSweeper(
+                " *   ",
+                "11100",
+                "00000"
+        ).clonePlayerState();
+
+        PatternDatabase database = new PatternDatabase();
+        database.record(view, solve(view).get(0));
+
+        assertFalse(database.contains(other, solve(other).get(0).boardCoords));
+    }
+
+    @Test
+    public void shouldSaveAndLoad() throws IOException {
+        PlayerView view = new MineSweeper(ONE_TWO_ONE).clonePlayerState();
+        PlayerView rotated = new MineSweeper(ONE_TWO_ONE_ROTATED).clonePlayerState();
+
+        PatternDatabase database = new PatternDatabase();
+        database.record(view, solve(view).get(0));
+
+        Path file = Files.createTempFile("patterns", ".db");
+        try {
+            database.save(file);
+            PatternDatabase loaded = PatternDatabase.load(file);
+            assertEquals(1, loaded.size());
+
+            BackTrackComboAI.GroupResult expected = solve(rotated).get(0);
+            assertResultsEqual(expected, loaded.lookup(rotated, expected.boardCoords));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void aiShouldSkipKnownPatterns() {
+        PlayerView view = new MineSweeper(ONE_TWO_ONE).clonePlayerState();
+        PatternDatabase database = new PatternDatabase();
+        database.record(view, solve(view).get(0));
+
+        BackTrackComboAI ai = new BackTrackComboAI();
+        ai.setPatternDatabase(database);
+        ai.calculate(new MineSweeper(ONE_TWO_ONE_ROTATED).clonePlayerState());
+
+        assertEquals(1, database.getHits());
+        assertEquals(0, ai.getGroupResultCache().getMisses());
+    }
+
+    private static List<BackTrackComboAI.GroupResult> solve(PlayerView view) {
+        return new BackTrackComboAI() {
+            List<GroupResult> solve() {
+                try {
+                    return processGroups(view, getGroupsOfBorders(view));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }.solve();
+    }
+
+    private static void assertResultsEqual(BackTrackComboAI.GroupResult expected, BackTrackComboAI.GroupResult actual) {
+        assertEquals(expected.boardCoords, actual.boardCoords);
+        assertEquals(expected.groupResults.size(), actual.groupResults.size());
+        for (int i = 0; i < expected.groupResults.size(); i++) {
+            BackTrackComboAI.GroupResultEntry expectedEntry = expected.groupResults.get(i);
+            BackTrackComboAI.GroupResultEntry actualEntry = actual.groupResults.get(i);
+            assertEquals(0, expectedEntry.totalSolutions.compareTo(actualEntry.totalSolutions));
+            for (int j = 0; j < expectedEntry.squareResults.size(); j++) {
+                BigDecimal e = expectedEntry.squareResults.get(j);
+                assertEquals(0, e.compareTo(actualEntry.squareResults.get(j)));
+            }
+        }
+    }
+}
@@ -6,9 +6,13 @@ import com.skyplusplus.minesolver.core.gamelogic.SquareState;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("WeakerAccess")
 public class PlayerViewTest {
@@ -51,6 +55,41 @@ public class PlayerViewTest {
         assertEquals(SquareState.PROBED, playerView.getSquareState(BoardCoord.ofValue(9, 19)));
     }
 
+    @Test
+    public void shouldRejectSquaresAndNumbersOutOfRange() {
+        PlayerView playerView = new PlayerView(10, 20, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> playerView.setBoard(BoardCoord.ofValue(1, 1), 9));
+        assertThrows(IllegalArgumentException.class, () -> playerView.setBoard(BoardCoord.ofValue(1, 1), -1));
+        assertThrows(
+                ArrayIndexOutOfBoundsException.class,
+                () -> playerView.getSquareState(BoardCoord.ofValue(10, 0))
+        );
+        assertThrows(
+                ArrayIndexOutOfBoundsException.class,
+                () -> playerView.setBoard(BoardCoord.ofValue(0, 20), SquareState.FLAGGED)
+        );
+    }
+
+    @Test
+    public void shouldAddressSquaresByIndex() {
+        PlayerView playerView = new PlayerView(40, 20, 10);
+        int index = playerView.indexOf(BoardCoord.ofValue(7, 8));
+        assertEquals(8 * 40 + 7, index);
+        assertEquals(BoardCoord.ofValue(7, 8), playerView.coordOf(index));
+
+        playerView.setBoard(index, 2);
+        playerView.setBoard(playerView.indexOf(6, 8), SquareState.FLAGGED);
+        assertEquals(SquareState.PROBED, playerView.getSquareState(BoardCoord.ofValue(7, 8)));
+        assertEquals(2, playerView.getSquareMineCount(index));
+        assertEquals(1, playerView.countNeighbours(index, SquareState.FLAGGED));
+        assertEquals(7, playerView.countNeighbours(index, SquareState.UNKNOWN));
+
+        int[] neighbours = new int[8];
+        assertEquals(3, playerView.getNeighbours(playerView.indexOf(39, 19), neighbours));
+        assertArrayEquals(new int[]{index, playerView.indexOf(6, 8)}, playerView.getChangedIndexesSince(0));
+    }
+
     @Test
     public void copyShouldNotAffectOriginal() {
         PlayerView playerView = new PlayerView(10, 20, 10);
@@ -198,4 +237,199 @@ public class PlayerViewTest {
                 ))
         );
     }
+
+    @Test
+    public void copiesShouldKnowWhatChangedSinceAnEarlierCopy() {
+        PlayerView playerView = new PlayerView(10, 20, 10);
+        playerView.setBoard(BoardCoord.ofValue(5, 10), 4);
+        PlayerView earlier = playerView.copy();
+
+        playerView.setBoard(BoardCoord.ofValue(5, 11), SquareState.FLAGGED);
+        playerView.setBoard(BoardCoord.ofValue(6, 11), 2);
+        PlayerView later = playerView.copy();
+
+        assertEquals(earlier.getLineage(), later.getLineage());
+        assertNotEquals(earlier.getLineage(), new PlayerView(10, 20, 10).getLineage());
+        assertEquals(
+                Arrays.asList(BoardCoord.ofValue(5, 11), BoardCoord.ofValue(6, 11)),
+                later.getChangesSince(earlier.getRevision())
+        );
+        assertTrue(earlier.getChangesSince(earlier.getRevision()).isEmpty());
+    }
+
+    @Test
+    public void copiesShouldNotSeeEachOthersChanges() {
+        PlayerView original = new PlayerView(300, 300, 100);
+        for (int index = 0; index < original.getSquareCount(); index += 97) {
+            original.setBoard(index, index % 9);
+        }
+        PlayerView copy = original.copy();
+        PlayerView copyOfCopy = copy.copy();
+
+        original.setBoard(0, SquareState.FLAGGED);
+        copy.setBoard(1, SquareState.MINE);
+        copy.setBoard(original.getSquareCount() - 1, 3);
+        original.setBoard(50000, 8);
+
+        assertEquals(SquareState.FLAGGED, original.getSquareState(0));
+        assertEquals(SquareState.UNKNOWN, original.getSquareState(1));
+        assertEquals(SquareState.UNKNOWN, original.getSquareState(original.getSquareCount() - 1));
+        assertEquals(8, original.getSquareMineCount(50000));
+
+        assertEquals(SquareState.PROBED, copy.getSquareState(0));
+        assertEquals(SquareState.MINE, copy.getSquareState(1));
+        assertEquals(3, copy.getSquareMineCount(copy.getSquareCount() - 1));
+        assertEquals(SquareState.UNKNOWN, copy.getSquareState(50000));
+
+        for (int index = 0; index < copyOfCopy.getSquareCount(); index++) {
+            SquareState expected = index % 97 == 0 ? SquareState.PROBED : SquareState.UNKNOWN;
+            assertEquals(expected, copyOfCopy.getSquareState(index));
+            if (expected == SquareState.PROBED) {
+                assertEquals(index % 9, copyOfCopy.getSquareMineCount(index));
+            }
+        }
+    }
+
+    @Test
+    public void copiesShouldKeepTheirOwnChangeLogs() {
+        PlayerView original = new PlayerView(100, 100, 10);
+        for (int i = 0; i < 5000; i++) {
+            original.setBoard(i, SquareState.FLAGGED);
+        }
+        PlayerView copy = original.copy();
+        original.setBoard(7000, SquareState.FLAGGED);
+        copy.setBoard(8000, SquareState.FLAGGED);
+        copy.setBoard(8001, SquareState.FLAGGED);
+
+        assertArrayEquals(new int[]{7000}, original.getChangedIndexesSince(5000));
+        assertArrayEquals(new int[]{8000, 8001}, copy.getChangedIndexesSince(5000));
+        int[] all = copy.getChangedIndexesSince(0);
+        assertEquals(5002, all.length);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, all[i]);
+        }
+    }
+
+    @Test
+    public void shouldOnlyKeepAsManyChangesAsTheBoardHasSquares() {
+        PlayerView playerView = new PlayerView(10, 10, 10);
+        for (int i = 0; i < 20000; i++) {
+            playerView.setBoard(i % 100, i % 2 == 0 ? SquareState.FLAGGED : SquareState.UNKNOWN);
+        }
+        PlayerView copy = playerView.copy();
+        playerView.setBoard(42, 3);
+
+        assertTrue(playerView.getOldestRevision() > 0);
+        assertTrue(playerView.getRevision() - playerView.getOldestRevision() <= 2 * 4096);
+        assertEquals(playerView.getOldestRevision(), copy.getOldestRevision());
+        assertThrows(IllegalArgumentException.class, () -> playerView.getChangedIndexesSince(0));
+        assertArrayEquals(new int[]{42}, playerView.getChangedIndexesSince(20000));
+        assertArrayEquals(new int[]{99}, copy.getChangedIndexesSince(19999));
+        int[] kept = playerView.getChangedIndexesSince(playerView.getOldestRevision());
+        for (int i = 0; i < kept.length - 1; i++) {
+            assertEquals((playerView.getOldestRevision() + i) % 100, kept[i]);
+        }
+    }
+
+    @Test
+    public void copiesShouldStayConsistentWhileTheOriginalChanges() throws InterruptedException {
+        PlayerView original = new PlayerView(200, 200, 10);
+        PlayerView copy = original.copy();
+        AtomicBoolean consistent = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            for (int round = 0; round < 50; round++) {
+                for (int index = 0; index < copy.getSquareCount(); index++) {
+                    if (copy.getSquareState(index) != SquareState.UNKNOWN) {
+                        consistent.set(false);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int index = 0; index < original.getSquareCount(); index++) {
+            original.setBoard(index, SquareState.FLAGGED);
+        }
+        reader.join();
+        assertTrue(consistent.get());
+        assertEquals(0, copy.getRevision());
+    }
+
+    @Test
+    public void shouldKeepTrackOfTheSquaresInEachState() {
+        PlayerView original = new PlayerView(130, 70, 100);
+        assertEquals(130 * 70, original.getSquareCount(SquareState.UNKNOWN));
+        assertEquals(0, original.getSquareIndexes(SquareState.FLAGGED).length);
+
+        Random random = new Random(7);
+        PlayerView copy = null;
+        for (int i = 0; i < 20000; i++) {
+            int index = random.nextInt(original.getSquareCount());
+            SquareState state = SquareState.values()[random.nextInt(SquareState.values().length)];
+            if (state == SquareState.PROBED) {
+                original.setBoard(index, random.nextInt(9));
+            } else {
+                original.setBoard(index, state);
+            }
+            if (i == 10000) {
+                copy = original.copy();
+            }
+        }
+
+        for (PlayerView view : Arrays.asList(original, copy)) {
+            for (SquareState state : SquareState.values()) {
+                List<Integer> expected = new ArrayList<>();
+                for (int index = 0; index < view.getSquareCount(); index++) {
+                    if (view.getSquareState(index) == state) {
+                        expected.add(index);
+                    }
+                }
+                assertEquals(expected.size(), view.getSquareCount(state));
+                assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), view.getSquareIndexes(state));
+                assertEquals(
+                        view.getAllSquares().stream()
+                                .filter(coord -> view.getSquareState(coord) == state)
+                                .collect(Collectors.toList()),
+                        view.getAllSquares(state)
+                );
+            }
+        }
+    }
+
+    @Test
+    public void shouldCountNeighboursInEachState() {
+        PlayerView original = new PlayerView(3000, 5, 100);
+        assertEquals(3, original.countNeighbours(0, SquareState.UNKNOWN));
+        assertEquals(5, original.countNeighbours(BoardCoord.ofValue(1, 0), SquareState.UNKNOWN));
+        assertEquals(8, original.countNeighbours(BoardCoord.ofValue(1, 1), SquareState.UNKNOWN));
+
+        Random random = new Random(11);
+        PlayerView copy = null;
+        for (int i = 0; i < 10000; i++) {
+            int index = random.nextInt(original.getSquareCount());
+            if (random.nextInt(4) == 0) {
+                original.setBoard(index, random.nextInt(9));
+            } else {
+                original.setBoard(index, SquareState.values()[random.nextInt(SquareState.values().length)]);
+            }
+            if (i == 5000) {
+                copy = original.copy();
+            }
+        }
+
+        int[] neighbours = new int[8];
+        for (PlayerView view : Arrays.asList(original, copy)) {
+            for (int index = 0; index < view.getSquareCount(); index++) {
+                int numNeighbours = view.getNeighbours(index, neighbours);
+                for (SquareState state : SquareState.values()) {
+                    int expected = 0;
+                    for (int i = 0; i < numNeighbours; i++) {
+                        if (view.getSquareState(neighbours[i]) == state) {
+                            expected++;
+                        }
+                    }
+                    assertEquals(expected, view.countNeighbours(index, state));
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.backtrack.BackTrackComboAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.PropagatingBackTracker;
+
+@SuppressWarnings("WeakerAccess")
+public class PropagatingBackTrackerTest extends BackTrackComboAITest {
+
+    @Override
+    protected BackTrackComboAI getAI() {
+        return new BackTrackComboAI(new PropagatingBackTracker());
+    }
+}
@@ -0,0 +1,134 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.MineSweeperAI;
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.backtrack.RacingAI;
+import com.skyplusplus.minesolver.core.ai.frontier.FrontierAI;
+import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class RacingAITest extends DeterministicAITest<RacingAI> {
+
+    @Override
+    protected RacingAI getAI() {
+        return new RacingAI();
+    }
+
+    @Test
+    public void shouldKeepExpensiveResultForTheSameBoard() throws InterruptedException {
+        MineSweeper mineSweeper = new MineSweeper(
+                "01* "
+        );
+        BlockedAI blocked = new BlockedAI();
+        RacingAI racingAI = new RacingAI(blocked, new SimpleAI(false));
+
+        Move move = racingAI.calculate(mineSweeper.clonePlayerState());
+        assertEquals(1, racingAI.getRacesWonByCheap());
+        assertFalse(move.getToFlag().isEmpty());
+
+        // Nothing was done with the move, so the frontier run still applies.
+        blocked.release.countDown();
+        move = racingAI.calculate(mineSweeper.clonePlayerState());
+        assertEquals(1, racingAI.getReusedResults());
+        assertEquals(1, racingAI.getRacesWonByExpensive());
+        assertEquals(1, blocked.calls);
+        assertFalse(move.getToFlag().isEmpty());
+    }
+
+    @Test
+    public void shouldCancelExpensiveRunOnceTheBoardChanges() throws InterruptedException {
+        MineSweeper mineSweeper = new MineSweeper(
+                "01* "
+        );
+        BlockedAI blocked = new BlockedAI();
+        RacingAI racingAI = new RacingAI(blocked, new SimpleAI(false));
+
+        Move move = racingAI.calculate(mineSweeper.clonePlayerState());
+        for (BoardCoord coord : move.getToFlag()) {
+            mineSweeper.flag(coord);
+        }
+        blocked.entered.await();
+
+        PlayerView view = mineSweeper.clonePlayerState();
+        racingAI.calculate(view);
+        assertTrue(blocked.interrupted);
+        assertEquals(0, racingAI.getReusedResults());
+        assertEquals(2, blocked.calls);
+    }
+
+    @Test
+    public void shouldReuseCertainMovesTheCheapMoveLeftAlone() throws InterruptedException {
+        MineSweeper mineSweeper = new MineSweeper(
+                "*1001* "
+        );
+        BlockedAI blocked = new BlockedAI();
+        RacingAI racingAI = new RacingAI(blocked, new FixedAI(BoardCoord.ofValue(0, 0)));
+
+        Move move = racingAI.calculate(mineSweeper.clonePlayerState());
+        assertEquals(1, racingAI.getRacesWonByCheap());
+        assertEquals(Collections.singletonList(BoardCoord.ofValue(0, 0)), move.getToFlag());
+        mineSweeper.applyMove(move);
+        blocked.release.countDown();
+        blocked.finished.await();
+
+        // The frontier run found both mines. Only the one the cheap move didn't flag is left.
+        move = racingAI.calculate(mineSweeper.clonePlayerState());
+        assertEquals(1, racingAI.getReusedResults());
+        assertEquals(1, blocked.calls);
+        assertEquals(Collections.singletonList(BoardCoord.ofValue(5, 0)), move.getToFlag());
+        assertTrue(move.getToProbe().isEmpty());
+    }
+
+    /**
+     * Always flags the same square, as a cheap AI that wins every race.
+     */
+    private static class FixedAI extends MineSweeperAI {
+        final BoardCoord toFlag;
+
+        FixedAI(BoardCoord toFlag) {
+            this.toFlag = toFlag;
+        }
+
+        @Override
+        public Move calculate(PlayerView view) {
+            return new Move(Collections.emptyList(), Collections.singletonList(toFlag));
+        }
+    }
+
+    /**
+     * The frontier AI, but the first call is held up until released.
+     */
+    private static class BlockedAI extends MineSweeperAI {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final FrontierAI frontierAI = new FrontierAI();
+        volatile int calls = 0;
+        volatile boolean interrupted = false;
+
+        @Override
+        public Move calculate(PlayerView view) {
+            if (++calls == 1) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    return new Move(Collections.emptyList(), Collections.emptyList());
+                }
+            }
+            Move move = frontierAI.calculate(view, null, this::reportCertainMove);
+            finished.countDown();
+            return move;
+        }
+    }
+}
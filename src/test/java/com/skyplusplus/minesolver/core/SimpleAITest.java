@@ -1,7 +1,10 @@
 package com.skyplusplus.minesolver.core;
 
 import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.GameState;
 import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import com.skyplusplus.minesolver.core.gamelogic.PlayerView;
+import com.skyplusplus.minesolver.core.gamelogic.SquareState;
 import com.skyplusplus.minesolver.core.ai.Move;
 import com.skyplusplus.minesolver.core.ai.simple.SimpleAI;
 
@@ -11,8 +14,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 
 @SuppressWarnings("WeakerAccess")
 public class SimpleAITest extends AITest<SimpleAI> {
@@ -126,4 +132,97 @@ public class SimpleAITest extends AITest<SimpleAI> {
         mineSweeper = new MineSweeper(50, 50, 2499);
         assertCanWinGame(mineSweeper);
     }
+
+    @RepeatedTest(10)
+    public void shouldFindTheSameMovesIncrementally() {
+        Random random = new Random();
+        MineSweeper mineSweeper = new MineSweeper(30, 16, 99);
+        SimpleAI incremental = new SimpleAI(false);
+
+        while (mineSweeper.getGameState() == GameState.IN_PROGRESS) {
+            PlayerView view = mineSweeper.clonePlayerState();
+            Move move = incremental.calculate(view);
+            Move expected = new SimpleAI(false).calculate(view);
+            assertEquals(new HashSet<>(expected.getToProbe()), new HashSet<>(move.getToProbe()));
+            assertEquals(new HashSet<>(expected.getToFlag()), new HashSet<>(move.getToFlag()));
+
+            // Sometimes take a flag back off, to check squares going back to unknown.
+            List<BoardCoord> flagged = view.getAllSquares(SquareState.FLAGGED);
+            if (!flagged.isEmpty() && random.nextInt(4) == 0) {
+                mineSweeper.unflag(flagged.get(random.nextInt(flagged.size())));
+            }
+
+            move.getToFlag().forEach(mineSweeper::flag);
+            move.getToProbe().forEach(mineSweeper::probe);
+            if (move.getToFlag().isEmpty() && move.getToProbe().isEmpty()) {
+                List<BoardCoord> unknown = view.getAllSquares(SquareState.UNKNOWN);
+                mineSweeper.probe(unknown.get(random.nextInt(unknown.size())));
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindTheSameMovesOnDivergedCopies() {
+        MineSweeper mineSweeper = new MineSweeper(16, 16, 40, 5);
+        mineSweeper.probe(BoardCoord.ofValue(8, 8));
+        PlayerView view = mineSweeper.clonePlayerState();
+        PlayerView flagged = view.copy();
+        PlayerView probed = view.copy();
+        int[] unknown = view.getSquareIndexes(SquareState.UNKNOWN);
+        for (int i = 0; i < 10; i++) {
+            flagged.setBoard(unknown[i], SquareState.FLAGGED);
+            probed.setBoard(unknown[unknown.length - 1 - i], 0);
+        }
+        assertEquals(flagged.getRevision(), probed.getRevision());
+
+        SimpleAI reused = new SimpleAI(false);
+        for (PlayerView diverged : Arrays.asList(view, flagged, probed, flagged)) {
+            Move expected = new SimpleAI(false).calculate(diverged);
+            Move move = reused.calculate(diverged);
+            assertEquals(new HashSet<>(expected.getToProbe()), new HashSet<>(move.getToProbe()));
+            assertEquals(new HashSet<>(expected.getToFlag()), new HashSet<>(move.getToFlag()));
+        }
+    }
+
+    @Test
+    public void shouldLookAtTheWholeBoardOnceOldChangesAreDropped() {
+        MineSweeper mineSweeper = new MineSweeper(
+                "    ",
+                "  **",
+                "    ",
+                "    "
+        );
+        mineSweeper.probe(BoardCoord.ofValue(0, 3));
+        SimpleAI reused = new SimpleAI(false);
+        reused.calculate(mineSweeper.clonePlayerState());
+
+        // Far more changes than squares, then a flag on one of the mines.
+        for (int i = 0; i < 10000; i++) {
+            mineSweeper.toggleFlag(BoardCoord.ofValue(3, 0));
+        }
+        mineSweeper.flag(BoardCoord.ofValue(2, 1));
+        PlayerView view = mineSweeper.clonePlayerState();
+        assertTrue(view.getOldestRevision() > 0);
+
+        Move expected = new SimpleAI(false).calculate(view);
+        Move move = reused.calculate(view);
+        assertFalse(expected.getToProbe().isEmpty() && expected.getToFlag().isEmpty());
+        assertEquals(new HashSet<>(expected.getToProbe()), new HashSet<>(move.getToProbe()));
+        assertEquals(new HashSet<>(expected.getToFlag()), new HashSet<>(move.getToFlag()));
+    }
+
+    @Test
+    public void shouldOnlyReportToTheHandlersOfTheSameCall() {
+        PlayerView view = new MineSweeper(
+                "1*",
+                "11"
+        ).clonePlayerState();
+        List<Move> reported = new ArrayList<>();
+        SimpleAI ai = new SimpleAI(false);
+
+        ai.calculate(view, null, reported::add);
+        assertEquals(1, reported.size());
+        ai.calculate(view);
+        assertEquals(1, reported.size());
+    }
 }
@@ -0,0 +1,101 @@
+package com.skyplusplus.minesolver.core;
+
+import com.skyplusplus.minesolver.core.ai.Move;
+import com.skyplusplus.minesolver.core.ai.backtrack.FrankensteinAI;
+import com.skyplusplus.minesolver.core.ai.backtrack.TierScheduler;
+import com.skyplusplus.minesolver.core.gamelogic.BoardCoord;
+import com.skyplusplus.minesolver.core.gamelogic.GameState;
+import com.skyplusplus.minesolver.core.gamelogic.MineSweeper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("WeakerAccess")
+public class TierSchedulerTest {
+
+    @Test
+    public void shouldTryEveryTierWithoutHistory() {
+        TierScheduler scheduler = new TierScheduler("cheap", "expensive");
+        scheduler.startMove();
+        assertTrue(scheduler.shouldRun(0));
+        assertTrue(scheduler.shouldRun(1));
+    }
+
+    @Test
+    public void shouldSkipTiersThatDoNotPayOff() {
+        TierScheduler scheduler = new TierScheduler("cheap", "expensive");
+        // A cheap tier that never finds anything, and costs as much as the expensive one.
+        scheduler.startMove();
+        assertTrue(scheduler.shouldRun(0));
+        scheduler.record(0, 1_000_000, 0);
+        assertTrue(scheduler.shouldRun(1));
+        scheduler.record(1, 1_000_000, 3);
+
+        scheduler.startMove();
+        assertFalse(scheduler.shouldRun(0));
+        assertTrue(scheduler.shouldRun(1));
+        TierScheduler.Decision last = scheduler.getDecisionLog().get(scheduler.getDecisionLog().size() - 1);
+        assertEquals("cheap", last.tier);
+        assertFalse(last.ran);
+    }
+
+    @Test
+    public void shouldKeepTryingTiersThatPayOff() {
+        TierScheduler scheduler = new TierScheduler("cheap", "expensive");
+        scheduler.startMove();
+        scheduler.shouldRun(0);
+        scheduler.record(0, 1_000, 2);
+        scheduler.startMove();
+        scheduler.shouldRun(0);
+        scheduler.record(0, 1_000, 0);
+        scheduler.shouldRun(1);
+        scheduler.record(1, 1_000_000, 3);
+        for (int i = 0; i < 5; i++) {
+            scheduler.startMove();
+            assertTrue(scheduler.shouldRun(0));
+            scheduler.record(0, 1_000, 2);
+        }
+        assertEquals(6, scheduler.getTiers().get(0).getHits());
+        assertEquals(6.0 / 7, scheduler.getTiers().get(0).getOverallHitRate(), 1e-9);
+    }
+
+    @Test
+    public void shouldRecheckSkippedTiersEventually() {
+        TierScheduler scheduler = new TierScheduler("cheap", "expensive");
+        scheduler.startMove();
+        scheduler.shouldRun(0);
+        scheduler.record(0, 1_000_000, 0);
+        scheduler.shouldRun(1);
+        scheduler.record(1, 1_000, 3);
+
+        int skipped = 0;
+        scheduler.startMove();
+        while (!scheduler.shouldRun(0)) {
+            skipped++;
+            scheduler.startMove();
+        }
+        assertTrue(skipped > 0);
+        assertTrue(skipped <= 100);
+    }
+
+    @Test
+    public void frankensteinShouldExposeTierStatistics() {
+        FrankensteinAI ai = new FrankensteinAI();
+        MineSweeper mineSweeper = new MineSweeper(30, 16, 99);
+        while (mineSweeper.getGameState() == GameState.IN_PROGRESS) {
+            Move move = ai.calculate(mineSweeper.clonePlayerState());
+            move.getToFlag().forEach(mineSweeper::flag);
+            for (BoardCoord coord : move.getToProbe()) {
+                mineSweeper.probe(coord);
+            }
+        }
+
+        int calls = 0;
+        for (TierScheduler.Tier tier : ai.getScheduler().getTiers()) {
+            calls += tier.getCalls();
+            assertTrue(tier.getHits() <= tier.getCalls());
+        }
+        assertTrue(calls > 0);
+        assertFalse(ai.getScheduler().getDecisionLog().isEmpty());
+    }
+}